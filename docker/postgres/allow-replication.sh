@@ -0,0 +1,3 @@
+#!/bin/bash
+# Разрешает потоковую репликацию для сервиса db-replica (выполняется только при создании тома)
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,71 @@
+// k6: список карт и переводы между своими картами под постоянной нагрузкой.
+// Запуск: k6 run -e BASE_URL=http://localhost:8080 -e RATE=400 docs/benchmarks/threads/load.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const RATE = parseInt(__ENV.RATE || '400');
+const DURATION = __ENV.DURATION || '3m';
+
+export const options = {
+    discardResponseBodies: true,
+    scenarios: {
+        card_list: {
+            executor: 'constant-arrival-rate',
+            exec: 'cardList',
+            rate: Math.round(RATE * 0.8),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+        },
+        transfer: {
+            executor: 'constant-arrival-rate',
+            exec: 'transfer',
+            rate: Math.round(RATE * 0.2),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 500,
+        },
+    },
+    thresholds: {
+        'http_req_failed{scenario:card_list}': ['rate<0.01'],
+        'http_req_failed{scenario:transfer}': ['rate<0.01'],
+    },
+};
+
+export function setup() {
+    const login = http.post(`${BASE_URL}/user/login`,
+        JSON.stringify({ email: __ENV.EMAIL || 'nastya1152ty@gmail.com', password: __ENV.PASSWORD || 'nastya1152ty' }),
+        { headers: { 'Content-Type': 'application/json' }, responseType: 'text' });
+    check(login, { 'login ok': (r) => r.status === 200 });
+    const token = login.json('data.token');
+
+    const cards = http.get(`${BASE_URL}/cards/user?size=20`,
+        { headers: { Authorization: `Bearer ${token}` }, responseType: 'text' });
+    const active = cards.json('data.content').filter((card) => card.status === 'ACTIVE');
+    if (active.length < 2) {
+        throw new Error('Benchmark user needs at least two active cards');
+    }
+    return { token, from: active[0].id, to: active[1].id };
+}
+
+export function cardList(data) {
+    const res = http.get(`${BASE_URL}/cards/user?size=20`, { headers: { Authorization: `Bearer ${data.token}` } });
+    check(res, { 'card list 200': (r) => r.status === 200 });
+}
+
+export function transfer(data) {
+    // Переводы туда и обратно, чтобы баланс не кончился за время прогона
+    const forward = Math.random() < 0.5;
+    const body = JSON.stringify({
+        fromCardId: forward ? data.from : data.to,
+        toCardId: forward ? data.to : data.from,
+        amount: 0.01,
+    });
+    const res = http.post(`${BASE_URL}/transfers/own`, body, {
+        headers: { Authorization: `Bearer ${data.token}`, 'Content-Type': 'application/json' },
+    });
+    check(res, { 'transfer 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.replica.ReadYourWrites;
+import com.example.bankcards.config.replica.ReadYourWritesTransactionManager;
+import com.example.bankcards.config.replica.ReplicaDataSources;
+import com.example.bankcards.config.replica.ReplicaRoutingDataSource;
+import com.example.bankcards.config.workload.WorkloadDataSources;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * JDBC-пул и менеджер транзакций JPA, объявленные явно.
+ * <p>
+ * Spring Boot не создаёт DataSource, если в контексте есть R2DBC ConnectionFactory, а менеджер
+ * транзакций JPA - если уже есть R2DBC-менеджер. Запись и JPA-чтение остаются на JDBC, поэтому
+ * оба бина объявлены здесь; JPA-менеджер - основной, его используют все {@code @Transactional}.
+ * <p>
+ * Если заданы {@code app.datasource.replica.urls}, основной DataSource направляет readOnly-методы
+ * сервисов на реплики ({@link ReplicaRoutingDataSource}), а менеджер транзакций запоминает позицию
+ * WAL после записи, чтобы пользователь не читал с реплики, ещё не увидевшей его изменения.
+ * Классы нагрузки с собственным пулом ({@link WorkloadDataSources}) получают соединения первичного
+ * сервера из него.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, WorkloadDataSources workloadDataSources,
+                                ReplicaDataSources replicaDataSources, ReadYourWrites readYourWrites,
+                                MeterRegistry meterRegistry) {
+        DataSource primary = workloadDataSources.isEnabled() ? workloadDataSources.routing() : primaryDataSource;
+        if (!replicaDataSources.isEnabled()) {
+            return primary;
+        }
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicaDataSources, readYourWrites, meterRegistry));
+        // Иначе прокси возьмёт соединение при старте, чтобы узнать значения по умолчанию
+        proxy.setDefaultAutoCommit(primaryDataSource.isAutoCommit());
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         HikariDataSource primaryDataSource,
+                                                         ReplicaDataSources replicaDataSources,
+                                                         ReadYourWrites readYourWrites) {
+        if (!replicaDataSources.isEnabled()) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+        return new ReadYourWritesTransactionManager(entityManagerFactory, primaryDataSource, readYourWrites);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bankcards.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Режим потоков для Tomcat, MVC async, {@code @Async} и {@code @Scheduled}.
+ * <p>
+ * Виртуальные потоки включаются свойством {@code spring.threads.virtual.enabled}; Spring Boot
+ * применяет его только на Java 21+, на более старой JVM остаются пулы платформенных потоков.
+ * Пулы хеширования паролей и импорта CPU-bound и намеренно остаются ограниченными платформенными.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    public ThreadingConfig(Environment environment) {
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        int javaVersion = Runtime.version().feature();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Request execution uses virtual threads (Java {})", javaVersion);
+        } else if (requested) {
+            log.warn("Virtual threads requested but Java {} does not support them, using platform threads", javaVersion);
+        } else {
+            log.info("Request execution uses platform threads (Java {})", javaVersion);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.bankcards.config.auth;
 
+import com.example.bankcards.security.JwtPrincipal;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.service.TokenRevocationService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,9 +15,11 @@ import java.io.IOException;
 
 public class JwtTokenFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider) {
+    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider, TokenRevocationService tokenRevocationService) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -23,8 +28,11 @@ public class JwtTokenFilter extends OncePerRequestFilter {
             HttpServletResponse response,
             FilterChain filterChain) throws ServletException, IOException {
         String token = jwtTokenProvider.resolveToken(request);
-        if (token != null && jwtTokenProvider.validateToken(token)) {
+        if (token != null) {
             var authentication = jwtTokenProvider.getAuthentication(token);
+            if (tokenRevocationService.isRevoked((JwtPrincipal) authentication.getPrincipal())) {
+                throw new JwtException("JWT token is revoked");
+            }
             SecurityContextHolder.getContext().setAuthentication(authentication);
         }
 
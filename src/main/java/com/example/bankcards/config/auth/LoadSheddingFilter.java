@@ -0,0 +1,140 @@
+package com.example.bankcards.config.auth;
+
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit;
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit.Priority;
+import com.example.bankcards.config.workload.Workload;
+import com.example.bankcards.config.workload.WorkloadClass;
+import com.example.bankcards.config.workload.WorkloadInterceptor;
+import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.security.JwtPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Отсекает запросы сверх {@link AdaptiveConcurrencyLimit} ответом 503 до того, как они займут
+ * соединения и очереди. Стоит сразу после {@link JwtTokenFilter}: приоритет зависит от того,
+ * аутентифицирован ли запрос.
+ * <p>
+ * Приоритет берётся из {@link Workload} метода контроллера: перевод или пополнение от
+ * аутентифицированного пользователя - CRITICAL, история и админские операции - BULK, остальное - NORMAL.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final HandlerMapping handlerMapping;
+    private final ObjectMapper objectMapper;
+
+    public LoadSheddingFilter(AdaptiveConcurrencyLimit limit, HandlerMapping handlerMapping, ObjectMapper objectMapper) {
+        this.limit = limit;
+        this.handlerMapping = handlerMapping;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        if (!limit.tryAcquire(priorityOf(request))) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getWriter(), new ApiResult.Error<>("Service is overloaded, retry later"));
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // Поток отпущен, ответ допишется позже: запрос занимает место до конца, но его длительность
+                // (стримы, долгие выгрузки) не должна влиять на лимит
+                request.getAsyncContext().addListener(new ReleaseOnComplete(released));
+            } else if (released.compareAndSet(false, true)) {
+                limit.release(System.nanoTime() - start, failed || isServerError(response.getStatus()));
+            }
+        }
+    }
+
+    // 503 от лимитов классов нагрузки и пула хеширования - не перегрузка узла, их сигнал - только задержка
+    private static boolean isServerError(int status) {
+        return status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                && status != HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    }
+
+    private Priority priorityOf(HttpServletRequest request) {
+        WorkloadClass workload = workloadOf(request);
+        if (workload == null) {
+            return Priority.NORMAL;
+        }
+        return switch (workload) {
+            case TRANSFER_WRITE -> JwtPrincipal.current().isPresent() ? Priority.CRITICAL : Priority.NORMAL;
+            case HISTORY_READ, ADMIN -> Priority.BULK;
+            case CARD_READ, AUTH -> Priority.NORMAL;
+        };
+    }
+
+    private WorkloadClass workloadOf(HttpServletRequest request) {
+        try {
+            HandlerExecutionChain chain = handlerMapping.getHandler(request);
+            if (chain != null && chain.getHandler() instanceof HandlerMethod method) {
+                return WorkloadInterceptor.workloadOf(method);
+            }
+        } catch (Exception e) {
+            // Ошибку сопоставления (неподдерживаемый метод, тип) вернёт DispatcherServlet
+        }
+        return null;
+    }
+
+    private final class ReleaseOnComplete implements AsyncListener {
+        private final AtomicBoolean released;
+
+        ReleaseOnComplete(AtomicBoolean released) {
+            this.released = released;
+        }
+
+        private void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                limit.release(-1, dropped);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
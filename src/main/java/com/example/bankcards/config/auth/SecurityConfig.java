@@ -1,8 +1,18 @@
 package com.example.bankcards.config.auth;
 
 import com.example.bankcards.config.CustomAccessDeniedHandler;
+import com.example.bankcards.config.replica.ReadYourWrites;
+import com.example.bankcards.config.replica.ReadYourWritesFilter;
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit;
 import com.example.bankcards.security.CustomUserDetailsService;
+import com.example.bankcards.security.HashingPoolPasswordEncoder;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.PasswordHashingExecutor;
+import com.example.bankcards.service.TokenRevocationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,6 +25,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -28,15 +39,27 @@ public class SecurityConfig {
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomUserDetailsService customUserDetailsService;
     private final CustomAccessDeniedHandler customAccessDeniedHandler;
+    private final TokenRevocationService tokenRevocationService;
+    private final ReadYourWrites readYourWrites;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ObjectMapper objectMapper;
 
-    public SecurityConfig(JwtTokenProvider jwtTokenProvider, CustomUserDetailsService customUserDetailsService, CustomAccessDeniedHandler customAccessDeniedHandler) {
+    public SecurityConfig(JwtTokenProvider jwtTokenProvider, CustomUserDetailsService customUserDetailsService, CustomAccessDeniedHandler customAccessDeniedHandler,
+                          TokenRevocationService tokenRevocationService, ReadYourWrites readYourWrites,
+                          AdaptiveConcurrencyLimit concurrencyLimit, ObjectMapper objectMapper) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.customUserDetailsService = customUserDetailsService;
         this.customAccessDeniedHandler = customAccessDeniedHandler;
+        this.tokenRevocationService = tokenRevocationService;
+        this.readYourWrites = readYourWrites;
+        this.concurrencyLimit = concurrencyLimit;
+        this.objectMapper = objectMapper;
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            @Qualifier("requestMappingHandlerMapping") HandlerMapping handlerMapping) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))  // Включаем CORS
@@ -44,12 +67,15 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Асинхронные ответы (CompletableFuture, Flux, стриминг) уже авторизованы на исходном запросе
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers(
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**",
                                 "/swagger-ui.html"
                         ).permitAll()
-                        .requestMatchers("/user/login", "user/register").permitAll()
+                        .requestMatchers("/user/login", "user/register", "/user/token/refresh").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers(
                                 "/user/create-curator",
                                 "/admin/delete-curator/**",
@@ -66,24 +92,34 @@ public class SecurityConfig {
                         .accessDeniedHandler(customAccessDeniedHandler)
                 )
                 .addFilterBefore(
-                        new JwtTokenFilter(jwtTokenProvider),
+                        new JwtTokenFilter(jwtTokenProvider, tokenRevocationService),
                         UsernamePasswordAuthenticationFilter.class
-                );
+                )
+                // Сразу за JwtTokenFilter: приоритет учитывает аутентификацию, а лишние запросы отсекаются до работы с БД
+                .addFilterAfter(
+                        new LoadSheddingFilter(concurrencyLimit, handlerMapping, objectMapper),
+                        UsernamePasswordAuthenticationFilter.class
+                )
+                .addFilterAfter(new ReadYourWritesFilter(readYourWrites), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    // В пул хеширования уходит только BCrypt; поиск пользователя и перехеширование в БД - в потоке запроса
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
+    public AuthenticationManager authenticationManager(HttpSecurity http, PasswordEncoder passwordEncoder,
+                                                       PasswordHashingExecutor passwordHashingExecutor) throws Exception {
         AuthenticationManagerBuilder authenticationManagerBuilder =
                 http.getSharedObject(AuthenticationManagerBuilder.class);
-        authenticationManagerBuilder.userDetailsService(customUserDetailsService);
+        authenticationManagerBuilder.userDetailsService(customUserDetailsService)
+                .passwordEncoder(new HashingPoolPasswordEncoder(passwordEncoder, passwordHashingExecutor));
         return authenticationManagerBuilder.build();
     }
 
+    // Хеши с меньшей стоимостью прозрачно перехешируются при логине (CustomUserDetailsService.updatePassword)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -91,7 +127,8 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", ReadYourWrites.HEADER));
+        configuration.setExposedHeaders(List.of(ReadYourWrites.HEADER));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
@@ -1,22 +1,47 @@
 package com.example.bankcards.config.auth;
 
+import com.example.bankcards.config.ratelimit.RateLimitInterceptor;
+import com.example.bankcards.config.ratelimit.RateLimiter;
+import com.example.bankcards.config.workload.WorkloadBulkheads;
+import com.example.bankcards.config.workload.WorkloadInterceptor;
+import com.example.bankcards.dto.CountMode;
 import com.example.bankcards.security.CurrentUserIdArgumentResolver;
 import com.example.bankcards.security.OptionalUserIdArgumentResolver;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
+import java.util.Locale;
 
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
     private final CurrentUserIdArgumentResolver currentUserIdArgumentResolver;
     private final OptionalUserIdArgumentResolver optionalUserIdArgumentResolver;
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+    private final ObjectProvider<WorkloadBulkheads> workloadBulkheads;
+    private final ObjectProvider<RateLimiter> rateLimiter;
 
     public WebMvcConfig(CurrentUserIdArgumentResolver currentUserIdArgumentResolver,
-                        OptionalUserIdArgumentResolver optionalUserIdArgumentResolver) {
+                        OptionalUserIdArgumentResolver optionalUserIdArgumentResolver,
+                        Jackson2ObjectMapperBuilder objectMapperBuilder,
+                        ObjectProvider<WorkloadBulkheads> workloadBulkheads,
+                        ObjectProvider<RateLimiter> rateLimiter) {
         this.currentUserIdArgumentResolver = currentUserIdArgumentResolver;
         this.optionalUserIdArgumentResolver = optionalUserIdArgumentResolver;
+        this.objectMapperBuilder = objectMapperBuilder;
+        this.workloadBulkheads = workloadBulkheads;
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
@@ -24,4 +49,29 @@ public class WebMvcConfig implements WebMvcConfigurer {
         resolvers.add(currentUserIdArgumentResolver);
         resolvers.add(optionalUserIdArgumentResolver);
     }
-}
\ No newline at end of file
+
+    // В срезах @WebMvcTest лимитов нет - контроллеры тестируются без них.
+    // Частота проверяется первой: отклонённый запрос не занимает место в классе нагрузки
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        rateLimiter.ifAvailable(limiter -> registry.addInterceptor(new RateLimitInterceptor(limiter)));
+        workloadBulkheads.ifAvailable(bulkheads -> registry.addInterceptor(new WorkloadInterceptor(bulkheads)));
+    }
+
+    // Добавляются в конец списка: без Accept application/cbor или application/x-jackson-smile ответ остаётся JSON.
+    // Маппер собирается тем же билдером, что и JSON, поэтому модули и настройки дат совпадают
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.factory(new SmileFactory()).build()));
+    }
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        // count=estimate и count=ESTIMATE равнозначны
+        registry.addConverter(String.class, CountMode.class,
+                (Converter<String, CountMode>) value -> CountMode.valueOf(value.trim().toUpperCase(Locale.ROOT)));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.config.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket в виде GCRA: вместо счётчика токенов хранится одно число - теоретическое время
+ * следующего запроса (TAT), которое обновляется одним CAS без блокировок.
+ * <p>
+ * Запрос в момент {@code now} пропускается, если {@code TAT - now <= tolerance}, и сдвигает TAT на
+ * {@code interval}; при {@code tolerance = (burst - 1) * interval} это ровно ведро на {@code burst}
+ * токенов, пополняемое раз в {@code interval}.
+ */
+final class RateBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    RateBucket(long now) {
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * @return 0, если запрос пропущен, иначе сколько наносекунд ждать до следующего токена
+     */
+    long tryAcquire(long now, long interval, long tolerance) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long wait = tat - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, Math.max(tat, now) + interval)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.bankcards.config.ratelimit;
+
+import com.example.bankcards.config.workload.WorkloadClass;
+
+// Группа эндпоинтов со своим лимитом app.rate-limit.<key>; определяется по классу нагрузки метода
+public enum RateLimitGroup {
+    LOGIN("login"),
+    TRANSFERS("transfers"),
+    READS("reads");
+
+    private final String key;
+
+    RateLimitGroup(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    // Админские операции не ограничиваются
+    static RateLimitGroup of(WorkloadClass workload) {
+        return switch (workload) {
+            case AUTH -> LOGIN;
+            case TRANSFER_WRITE -> TRANSFERS;
+            case CARD_READ, HISTORY_READ -> READS;
+            case ADMIN -> null;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankcards.config.ratelimit;
+
+import com.example.bankcards.config.workload.WorkloadClass;
+import com.example.bankcards.config.workload.WorkloadInterceptor;
+import com.example.bankcards.security.JwtPrincipal;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Применяет {@link RateLimiter} к методам контроллеров по их классу нагрузки. Ключ - ID пользователя
+ * из JWT, для анонимных запросов (логин, регистрация) - IP клиента ({@code getRemoteAddr} уже с учётом
+ * X-Forwarded-For от доверенных прокси, см. {@code server.tomcat.remoteip}). Исключение лимита превращается
+ * в 429 в {@code GlobalExceptionHandler}.
+ * <p>
+ * Запрос проверяется ровно по одному ведру: аутентифицированный - только по ведру пользователя, без ведра IP.
+ * Иначе все пользователи за одним NAT или корпоративным прокси делили бы лимит одного пользователя.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Асинхронная диспетчеризация продолжает уже пропущенный запрос
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        WorkloadClass workload = WorkloadInterceptor.workloadOf(method);
+        RateLimitGroup group = workload == null ? null : RateLimitGroup.of(workload);
+        if (group == null) {
+            return true;
+        }
+        Object subject = JwtPrincipal.current()
+                .<Object>map(JwtPrincipal::userId)
+                .orElseGet(request::getRemoteAddr);
+        rateLimiter.check(group, subject);
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.config.ratelimit;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лимиты частоты запросов по группам эндпоинтов ({@code app.rate-limit.<группа>.per-second} и {@code burst})
+ * для каждого пользователя, а для анонимных запросов - для каждого IP.
+ * <p>
+ * Вёдра лежат в ограниченном кеше Caffeine и удаляются после простоя, за который ведро успело бы
+ * наполниться заново, поэтому удаление не ослабляет лимит. Проверка - чтение из кеша и один CAS.
+ */
+@Component
+public class RateLimiter {
+
+    private record BucketKey(RateLimitGroup group, Object subject) {
+    }
+
+    private final boolean enabled;
+    private final long[] intervals = new long[RateLimitGroup.values().length];
+    private final long[] tolerances = new long[RateLimitGroup.values().length];
+    private final Cache<BucketKey, RateBucket> buckets;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimiter(Environment environment,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${app.rate-limit.max-buckets:100000}") long maxBuckets) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        long refillNanos = TimeUnit.SECONDS.toNanos(1);
+        for (RateLimitGroup group : RateLimitGroup.values()) {
+            String prefix = "app.rate-limit." + group.key() + ".";
+            double perSecond = environment.getProperty(prefix + "per-second", Double.class, 10.0);
+            int burst = environment.getProperty(prefix + "burst", Integer.class, 20);
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            intervals[group.ordinal()] = interval;
+            tolerances[group.ordinal()] = (burst - 1) * interval;
+            refillNanos = Math.max(refillNanos, burst * interval);
+        }
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(refillNanos))
+                .maximumSize(maxBuckets)
+                .build();
+    }
+
+    /**
+     * @param subject ID пользователя или IP анонимного клиента
+     * @throws TooManyRequestsException если лимит группы исчерпан
+     */
+    public void check(RateLimitGroup group, Object subject) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        BucketKey key = new BucketKey(group, subject);
+        RateBucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            bucket = buckets.get(key, k -> new RateBucket(now));
+        }
+        long wait = bucket.tryAcquire(now, intervals[group.ordinal()], tolerances[group.ordinal()]);
+        if (wait > 0) {
+            meterRegistry.counter("rate_limit.throttled", "group", group.key()).increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new TooManyRequestsException("Rate limit exceeded for " + group.key() + " requests", retryAfterSeconds);
+        }
+    }
+}
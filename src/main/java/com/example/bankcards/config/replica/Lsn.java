@@ -0,0 +1,22 @@
+package com.example.bankcards.config.replica;
+
+// Позиция в WAL Postgres: текст вида 16/B374D848 - старшие и младшие 32 бита в hex
+final class Lsn {
+
+    private Lsn() {
+    }
+
+    static long parse(String text) {
+        int slash = text.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Invalid LSN: " + text);
+        }
+        long high = Long.parseLong(text.substring(0, slash), 16);
+        long low = Long.parseLong(text.substring(slash + 1), 16);
+        return (high << 32) | low;
+    }
+
+    static String format(long lsn) {
+        return Long.toHexString(lsn >>> 32).toUpperCase() + "/" + Long.toHexString(lsn & 0xFFFFFFFFL).toUpperCase();
+    }
+}
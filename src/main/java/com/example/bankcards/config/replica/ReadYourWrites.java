@@ -0,0 +1,90 @@
+package com.example.bankcards.config.replica;
+
+import com.example.bankcards.security.JwtPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+/**
+ * Минимальная позиция WAL, которую должна воспроизвести реплика, чтобы читать с неё текущий запрос.
+ * <p>
+ * После записи пользователя запоминается LSN первичного сервера: на этом узле - по ID пользователя
+ * (на {@code read-your-writes-ttl}), для других узлов - в заголовке ответа {@link #HEADER}, который
+ * клиент может вернуть в следующих запросах. Пока ни одна реплика не догнала эту позицию, чтение
+ * идёт с первичного сервера.
+ */
+@Component
+public class ReadYourWrites {
+
+    public static final String HEADER = "X-Min-Read-Lsn";
+
+    private final ThreadLocal<Long> requestLsn = new ThreadLocal<>();
+    private final Cache<Long, Long> lsnByUser;
+
+    public ReadYourWrites(@Value("${app.datasource.replica.read-your-writes-ttl:PT30S}") Duration ttl) {
+        this.lsnByUser = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public long requiredLsn() {
+        long required = 0;
+        Long fromRequest = requestLsn.get();
+        if (fromRequest != null) {
+            required = fromRequest;
+        }
+        Long userId = currentUserId();
+        if (userId != null) {
+            Long fromUser = lsnByUser.getIfPresent(userId);
+            if (fromUser != null) {
+                required = Math.max(required, fromUser);
+            }
+        }
+        return required;
+    }
+
+    // Есть ли, чью запись отслеживать: фоновые задачи без пользователя и запроса пропускаются
+    public boolean hasSubject() {
+        return currentUserId() != null || RequestContextHolder.getRequestAttributes() != null;
+    }
+
+    public void recordWrite(long lsn) {
+        Long userId = currentUserId();
+        if (userId != null) {
+            lsnByUser.asMap().merge(userId, lsn, Math::max);
+        }
+        requestLsn.set(Math.max(lsn, requestLsn.get() == null ? 0 : requestLsn.get()));
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(HEADER, Lsn.format(requestLsn.get()));
+            }
+        }
+    }
+
+    void bindRequest(String headerValue) {
+        if (headerValue == null || headerValue.isBlank()) {
+            return;
+        }
+        try {
+            requestLsn.set(Lsn.parse(headerValue.trim()));
+        } catch (IllegalArgumentException e) {
+            // Испорченный заголовок не должен ломать запрос - читаем как без него
+        }
+    }
+
+    void clearRequest() {
+        requestLsn.remove();
+    }
+
+    private static Long currentUserId() {
+        return JwtPrincipal.current().map(JwtPrincipal::userId).orElse(null);
+    }
+}
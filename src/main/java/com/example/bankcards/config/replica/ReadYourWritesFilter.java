@@ -0,0 +1,31 @@
+package com.example.bankcards.config.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Привязывает к потоку запроса LSN из заголовка X-Min-Read-Lsn, полученного клиентом после записи
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        readYourWrites.bindRequest(request.getHeader(ReadYourWrites.HEADER));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.clearRequest();
+        }
+    }
+}
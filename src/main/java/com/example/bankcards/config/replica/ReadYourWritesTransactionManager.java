@@ -0,0 +1,69 @@
+package com.example.bankcards.config.replica;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JPA-менеджер транзакций, который после каждой пишущей транзакции запоминает позицию WAL
+ * первичного сервера для {@link ReadYourWrites}.
+ * <p>
+ * Позиция читается уже после того, как соединение транзакции вернулось в пул, чтобы под нагрузкой
+ * транзакция не ждала второе соединение из того же пула.
+ */
+public class ReadYourWritesTransactionManager extends JpaTransactionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadYourWritesTransactionManager.class);
+
+    private final DataSource primary;
+    private final ReadYourWrites readYourWrites;
+    private final ThreadLocal<Boolean> committedWrite = new ThreadLocal<>();
+
+    public ReadYourWritesTransactionManager(EntityManagerFactory entityManagerFactory, DataSource primary,
+                                            ReadYourWrites readYourWrites) {
+        super(entityManagerFactory);
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        super.doCommit(status);
+        if (!status.isReadOnly() && readYourWrites.hasSubject()) {
+            committedWrite.set(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        super.doCleanupAfterCompletion(transaction);
+        if (committedWrite.get() == null) {
+            return;
+        }
+        committedWrite.remove();
+        try {
+            readYourWrites.recordWrite(currentWalLsn());
+        } catch (SQLException | IllegalArgumentException e) {
+            // Без позиции нельзя проверить реплику - пользователь читает с первичного сервера до истечения TTL
+            log.warn("Could not read primary WAL position: {}", e.getMessage());
+            readYourWrites.recordWrite(Long.MAX_VALUE);
+        }
+    }
+
+    private long currentWalLsn() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+            rs.next();
+            return Lsn.parse(rs.getString(1));
+        }
+    }
+}
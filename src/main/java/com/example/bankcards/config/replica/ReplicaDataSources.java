@@ -0,0 +1,156 @@
+package com.example.bankcards.config.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы соединений к репликам и их позиция воспроизведения WAL.
+ * <p>
+ * Раз в {@code lag-poll-ms} у каждой реплики запрашивается {@code pg_last_wal_replay_lsn()}.
+ * Реплика, которая не ответила или давно не опрашивалась, не получает запросов, пока не ответит снова.
+ * Если URL реплики указывает на сервер не в режиме восстановления (локальная разработка без реплики),
+ * функция возвращает NULL - такой сервер считается догнавшим любую запись.
+ */
+@Component
+public class ReplicaDataSources {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSources.class);
+
+    private static final long UNAVAILABLE = -1;
+
+    private final Map<String, DataSource> replicas = new LinkedHashMap<>();
+    private final Map<String, Long> replayLsn = new ConcurrentHashMap<>();
+    private final Map<String, Long> polledAt = new ConcurrentHashMap<>();
+    private final List<String> keys;
+    private final AtomicInteger next = new AtomicInteger();
+    private final long lagPollMs;
+
+    @Autowired
+    public ReplicaDataSources(MeterRegistry meterRegistry,
+                              @Value("${app.datasource.replica.urls:}") List<String> urls,
+                              @Value("${spring.datasource.username:}") String username,
+                              @Value("${spring.datasource.password:}") String password,
+                              @Value("${app.datasource.replica.pool-size:10}") int poolSize,
+                              @Value("${app.datasource.replica.lag-poll-ms:200}") long lagPollMs) {
+        this.lagPollMs = lagPollMs;
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String key = "replica-" + (replicas.size() + 1);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(key);
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setMaximumPoolSize(poolSize);
+            pool.setReadOnly(true);
+            pool.setMetricRegistry(meterRegistry);
+            // Недоступная при старте реплика не должна мешать запуску приложения
+            pool.setInitializationFailTimeout(-1);
+            replicas.put(key, pool);
+            replayLsn.put(key, UNAVAILABLE);
+            Gauge.builder("datasource.replica.available", () -> isAvailable(key) ? 1 : 0)
+                    .tag("replica", key)
+                    .register(meterRegistry);
+        }
+        this.keys = List.copyOf(replicas.keySet());
+    }
+
+    // Для тестов: реплики задаются готовыми DataSource
+    ReplicaDataSources(Map<String, DataSource> replicas, long lagPollMs) {
+        this.lagPollMs = lagPollMs;
+        this.replicas.putAll(replicas);
+        replicas.keySet().forEach(key -> replayLsn.put(key, UNAVAILABLE));
+        this.keys = List.copyOf(replicas.keySet());
+    }
+
+    public boolean isEnabled() {
+        return !replicas.isEmpty();
+    }
+
+    public Map<String, DataSource> asMap() {
+        return replicas;
+    }
+
+    /**
+     * Доступная реплика, воспроизведшая WAL не меньше {@code minLsn}, по кругу между подходящими.
+     */
+    public Optional<String> pick(long minLsn) {
+        int size = keys.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            String key = keys.get((start + i) % size);
+            if (isAvailable(key) && replayLsn.get(key) >= minLsn) {
+                return Optional.of(key);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-poll-ms:200}")
+    public void pollReplayLsn() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String key = replica.getKey();
+            try {
+                updateReplayLsn(key, queryReplayLsn(replica.getValue()));
+            } catch (SQLException e) {
+                if (replayLsn.put(key, UNAVAILABLE) != UNAVAILABLE) {
+                    log.warn("Replica {} is unavailable: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    void updateReplayLsn(String key, long lsn) {
+        replayLsn.put(key, lsn);
+        polledAt.put(key, System.currentTimeMillis());
+    }
+
+    private boolean isAvailable(String key) {
+        Long polled = polledAt.get(key);
+        // Опрос отстал (например, завис на сети) - позиции реплики больше нельзя доверять
+        return replayLsn.getOrDefault(key, UNAVAILABLE) != UNAVAILABLE
+                && polled != null
+                && System.currentTimeMillis() - polled <= lagPollMs * 5 + 1000;
+    }
+
+    private static long queryReplayLsn(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_last_wal_replay_lsn()::text")) {
+            rs.next();
+            String lsn = rs.getString(1);
+            return lsn == null ? Long.MAX_VALUE : Lsn.parse(lsn);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        replicas.values().forEach(dataSource -> {
+            if (dataSource instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.config.replica;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Выбирает пул для нового соединения: реплику для {@code @Transactional(readOnly = true)} методов
+ * приложения, первичный сервер для всего остального.
+ * <p>
+ * Собственные readOnly-транзакции Spring Data (вызовы репозитория вне транзакции сервиса) остаются
+ * на первичном сервере: они встречаются в путях записи, и отставание реплики там недопустимо.
+ * Ключ определяется при получении физического соединения, поэтому источник должен быть обёрнут
+ * в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} - иначе JPA берёт
+ * соединение раньше, чем транзакция помечается как readOnly.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final String APP_PACKAGE = "com.example.bankcards.";
+
+    private final ReplicaDataSources replicas;
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaDataSources replicas,
+                                    ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.meterRegistry = meterRegistry;
+        Map<Object, Object> targets = new HashMap<>(replicas.asMap());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (name == null || !name.startsWith(APP_PACKAGE)) {
+            return PRIMARY;
+        }
+        String target = replicas.pick(readYourWrites.requiredLsn()).orElse(PRIMARY);
+        meterRegistry.counter("datasource.replica.reads", "target", target).increment();
+        return target;
+    }
+}
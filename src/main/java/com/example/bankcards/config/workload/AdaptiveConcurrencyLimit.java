@@ -0,0 +1,158 @@
+package com.example.bankcards.config.workload;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Общий для узла лимит одновременно обрабатываемых запросов, подстраиваемый по задержке (AIMD).
+ * <p>
+ * Раз в {@code window-ms} средняя задержка окна сравнивается с базовой - задержкой без нагрузки.
+ * Если она выросла больше чем в {@code latency-tolerance} раз или в окне были ответы 5xx (кроме 503
+ * от лимитов), исключения мимо обработчиков или таймауты асинхронных ответов, лимит умножается на {@code backoff-ratio}; если лимит использовался
+ * хотя бы наполовину и задержка в норме - растёт на корень из себя. Базовая задержка сразу опускается до меньшего среднего
+ * и медленно (на 1% за окно) поднимается к большему, чтобы следовать за сменой нагрузки, но не
+ * принимать перегрузку за норму.
+ * <p>
+ * Запросы разных приоритетов занимают разную долю лимита: массовое чтение отсекается первым,
+ * переводы - последними.
+ */
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    public enum Priority {
+        CRITICAL, NORMAL, BULK
+    }
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger peakInflight = new AtomicInteger();
+    private final LongAdder latencySum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final MeterRegistry meterRegistry;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final double normalShare;
+    private final double bulkShare;
+
+    private volatile double limit;
+    private volatile double baselineNanos;
+    private volatile long windowStart = System.nanoTime();
+
+    public AdaptiveConcurrencyLimit(MeterRegistry meterRegistry,
+                                    @Value("${app.load-shedding.initial-limit:100}") int initialLimit,
+                                    @Value("${app.load-shedding.min-limit:10}") int minLimit,
+                                    @Value("${app.load-shedding.max-limit:400}") int maxLimit,
+                                    @Value("${app.load-shedding.window-ms:250}") long windowMs,
+                                    @Value("${app.load-shedding.latency-tolerance:2.0}") double latencyTolerance,
+                                    @Value("${app.load-shedding.backoff-ratio:0.9}") double backoffRatio,
+                                    @Value("${app.load-shedding.normal-share:0.8}") double normalShare,
+                                    @Value("${app.load-shedding.bulk-share:0.5}") double bulkShare) {
+        this.meterRegistry = meterRegistry;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.normalShare = normalShare;
+        this.bulkShare = bulkShare;
+        Gauge.builder("load_shedding.limit", this, AdaptiveConcurrencyLimit::getLimit).register(meterRegistry);
+        Gauge.builder("load_shedding.inflight", inflight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Принимает запрос, если для его приоритета есть место. Каждый принятый запрос должен завершаться
+     * {@link #release}.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * share(priority)));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                meterRegistry.counter("load_shedding.rejected", "priority", priority.name().toLowerCase(Locale.ROOT)).increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                peakInflight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos время обработки или {@code -1}, если запрос не должен влиять на лимит
+     *                     (асинхронные и потоковые ответы)
+     * @param dropped      запрос завершился признаком перегрузки (5xx кроме 503, исключение, таймаут асинхронного ответа)
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        inflight.decrementAndGet();
+        if (dropped) {
+            drops.increment();
+        }
+        if (latencyNanos >= 0) {
+            latencySum.add(latencyNanos);
+            samples.increment();
+        }
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos && samples.sum() >= MIN_WINDOW_SAMPLES && updateLock.tryLock()) {
+            try {
+                updateLimit(now);
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    private void updateLimit(long now) {
+        windowStart = now;
+        long count = samples.sumThenReset();
+        long sum = latencySum.sumThenReset();
+        boolean overloaded = drops.sumThenReset() > 0;
+        int peak = peakInflight.getAndSet(inflight.get());
+        if (count == 0) {
+            return;
+        }
+        double average = (double) sum / count;
+        double baseline = baselineNanos;
+        if (baseline == 0 || average < baseline) {
+            baselineNanos = average;
+        } else {
+            baselineNanos = baseline + (average - baseline) * BASELINE_DRIFT;
+        }
+
+        double current = limit;
+        if (overloaded || (baseline > 0 && average > baseline * latencyTolerance)) {
+            limit = Math.max(minLimit, current * backoffRatio);
+        } else if (peak >= current / 2) {
+            limit = Math.min(maxLimit, current + Math.sqrt(current));
+        }
+    }
+
+    private double share(Priority priority) {
+        return switch (priority) {
+            case CRITICAL -> 1.0;
+            case NORMAL -> normalShare;
+            case BULK -> bulkShare;
+        };
+    }
+}
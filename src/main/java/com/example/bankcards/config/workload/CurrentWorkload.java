@@ -0,0 +1,22 @@
+package com.example.bankcards.config.workload;
+
+// Класс нагрузки запроса, который обрабатывается в текущем потоке; по нему выбирается пул соединений
+final class CurrentWorkload {
+
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private CurrentWorkload() {
+    }
+
+    static WorkloadClass get() {
+        return CURRENT.get();
+    }
+
+    static void set(WorkloadClass workload) {
+        CURRENT.set(workload);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
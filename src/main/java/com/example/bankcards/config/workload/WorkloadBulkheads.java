@@ -0,0 +1,107 @@
+package com.example.bankcards.config.workload;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лимиты параллельных запросов по классам нагрузки ({@code app.workload.<класс>.*}).
+ * <p>
+ * Запрос сверх {@code max-concurrent} ждёт свободного места не дольше {@code queue-timeout-ms},
+ * а если в очереди класса уже {@code max-queue} запросов - сразу получает 503. Ожидающий запрос держит
+ * поток Tomcat, поэтому сумма {@code max-concurrent + max-queue} всех классов, кроме transfer-write,
+ * должна оставаться меньше {@code server.tomcat.threads.max}: тогда переводам всегда хватает потоков.
+ */
+@Component
+public class WorkloadBulkheads {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final Map<WorkloadClass, Bulkhead> bulkheads = new EnumMap<>(WorkloadClass.class);
+
+    public WorkloadBulkheads(Environment environment, MeterRegistry meterRegistry) {
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            String prefix = "app.workload." + workload.key() + ".";
+            Bulkhead bulkhead = new Bulkhead(
+                    environment.getProperty(prefix + "max-concurrent", Integer.class, 20),
+                    environment.getProperty(prefix + "max-queue", Integer.class, 20),
+                    environment.getProperty(prefix + "queue-timeout-ms", Long.class, 500L),
+                    meterRegistry, workload.key());
+            bulkheads.put(workload, bulkhead);
+        }
+    }
+
+    /**
+     * Занимает место в классе нагрузки или бросает {@link ServiceUnavailableException}.
+     * Каждый успешный вызов должен завершаться {@link #release}.
+     */
+    public void acquire(WorkloadClass workload) {
+        Bulkhead bulkhead = bulkheads.get(workload);
+        if (!bulkhead.tryAcquire()) {
+            bulkhead.rejected.increment();
+            throw new ServiceUnavailableException(
+                    "Too many concurrent " + workload.key() + " requests, retry later", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    public void release(WorkloadClass workload) {
+        bulkheads.get(workload).permits.release();
+    }
+
+    private static final class Bulkhead {
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final int maxQueue;
+        private final long queueTimeoutMs;
+        private final Counter rejected;
+        private final Timer queueWait;
+
+        Bulkhead(int maxConcurrent, int maxQueue, long queueTimeoutMs, MeterRegistry meterRegistry, String key) {
+            this.permits = new Semaphore(maxConcurrent);
+            this.maxQueue = maxQueue;
+            this.queueTimeoutMs = queueTimeoutMs;
+            this.rejected = meterRegistry.counter("workload.rejected", "workload", key);
+            this.queueWait = meterRegistry.timer("workload.queue.wait", "workload", key);
+            Gauge.builder("workload.active", permits, p -> maxConcurrent - p.availablePermits())
+                    .tag("workload", key)
+                    .register(meterRegistry);
+            Gauge.builder("workload.queued", waiting, AtomicInteger::get)
+                    .tag("workload", key)
+                    .register(meterRegistry);
+            Gauge.builder("workload.saturation", permits,
+                            p -> (double) (maxConcurrent - p.availablePermits()) / Math.max(maxConcurrent, 1))
+                    .tag("workload", key)
+                    .register(meterRegistry);
+        }
+
+        boolean tryAcquire() {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                return false;
+            }
+            long start = System.nanoTime();
+            try {
+                return permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting.decrementAndGet();
+                queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.config.workload;
+
+// Класс нагрузки: у каждого свой лимит параллельных запросов и, при pool-size > 0, свой пул соединений
+public enum WorkloadClass {
+    TRANSFER_WRITE("transfer-write"),
+    CARD_READ("card-read"),
+    HISTORY_READ("history-read"),
+    ADMIN("admin"),
+    AUTH("auth");
+
+    private final String key;
+
+    WorkloadClass(String key) {
+        this.key = key;
+    }
+
+    // Имя в настройках app.workload.<key> и в тегах метрик
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bankcards.config.workload;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Отдельные пулы соединений для классов нагрузки с {@code app.workload.<класс>.pool-size > 0}.
+ * <p>
+ * Пул копирует настройки основного ({@code spring.datasource.hikari}), кроме размера. Классы без
+ * своего пула, фоновые задачи и потоки вне запроса берут соединения из основного пула, поэтому
+ * исчерпание пула истории не задерживает переводы, и наоборот.
+ */
+@Component
+public class WorkloadDataSources {
+
+    private final HikariDataSource primary;
+    private final Map<WorkloadClass, HikariDataSource> pools = new EnumMap<>(WorkloadClass.class);
+
+    public WorkloadDataSources(@Qualifier("primaryDataSource") HikariDataSource primary,
+                               Environment environment,
+                               MeterRegistry meterRegistry) {
+        this.primary = primary;
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            int poolSize = environment.getProperty("app.workload." + workload.key() + ".pool-size", Integer.class, 0);
+            if (poolSize <= 0) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setPoolName("workload-" + workload.key());
+            config.setMaximumPoolSize(poolSize);
+            config.setMinimumIdle(poolSize);
+            config.setMetricRegistry(meterRegistry);
+            config.setInitializationFailTimeout(-1);
+            pools.put(workload, new HikariDataSource(config));
+        }
+    }
+
+    public boolean isEnabled() {
+        return !pools.isEmpty();
+    }
+
+    // Источник, выбирающий пул по классу нагрузки текущего запроса
+    public DataSource routing() {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return CurrentWorkload.get();
+            }
+        };
+        routing.setTargetDataSources(new HashMap<>(pools));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @PreDestroy
+    void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.config.workload;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Занимает место в классе нагрузки на время выполнения метода контроллера.
+ * <p>
+ * Для асинхронных ответов (NDJSON, CompletableFuture) место освобождается, когда метод вернул
+ * управление и поток Tomcat отпущен: дальше работа идёт на своих пулах.
+ */
+public class WorkloadInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = WorkloadInterceptor.class.getName() + ".PERMIT";
+    private static final Object RELEASED = new Object();
+
+    private final WorkloadBulkheads bulkheads;
+
+    public WorkloadInterceptor(WorkloadBulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Повторная (асинхронная) диспетчеризация того же запроса - место уже занималось
+        if (request.getAttribute(PERMIT) != null || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        WorkloadClass workload = workloadOf(method);
+        if (workload == null) {
+            return true;
+        }
+        bulkheads.acquire(workload);
+        request.setAttribute(PERMIT, workload);
+        CurrentWorkload.set(workload);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT) instanceof WorkloadClass workload) {
+            request.setAttribute(PERMIT, RELEASED);
+            bulkheads.release(workload);
+        }
+        CurrentWorkload.clear();
+    }
+
+    public static WorkloadClass workloadOf(HandlerMethod method) {
+        Workload workload = method.getMethodAnnotation(Workload.class);
+        if (workload == null) {
+            workload = AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), Workload.class);
+        }
+        return workload == null ? null : workload.value();
+    }
+}
@@ -1,12 +1,25 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.workload.Workload;
+import com.example.bankcards.config.workload.WorkloadClass;
 import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.dto.card.BulkBlockInput;
+import com.example.bankcards.dto.card.BulkCreateCardsInput;
+import com.example.bankcards.dto.card.BulkCreateCardsResponse;
+import com.example.bankcards.dto.card.BulkOperationProgress;
 import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.card.CardSearchFilter;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
 import com.example.bankcards.dto.card.DepositInput;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.security.CurrentUserId;
 import com.example.bankcards.security.OptionalUserId;
 import com.example.bankcards.service.CardService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import org.springdoc.core.annotations.ParameterObject;
@@ -14,24 +27,39 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.LongConsumer;
+import java.util.function.ToLongFunction;
 
 @Tag(name = "Карты", description = "Управление банковскими картами")
 @RestController
 @RequestMapping("/cards")
 @SecurityRequirement(name = "bearerAuth")
+@Workload(WorkloadClass.CARD_READ)
 public class CardController {
 
     private final CardService cardService;
+    private final ObjectMapper objectMapper;
 
-    public CardController(CardService cardService) {
+    public CardController(CardService cardService, ObjectMapper objectMapper) {
         this.cardService = cardService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(summary = "Создание карты для пользователя (админ)")
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/create")
+    @Workload(WorkloadClass.ADMIN)
     public ApiResult<CardResponse> createCard(
             @Parameter(
                     description = "ID пользователя, для которого создаем карту",
@@ -43,6 +71,19 @@ public class CardController {
         return new ApiResult.Success<>(CardResponse.fromEntity(card, masked));
     }
 
+    @Operation(
+            summary = "Массовый выпуск карт (админ)",
+            description = "Выпускает countPerUser карт для каждого пользователя из списка userIds"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/create/bulk")
+    @Workload(WorkloadClass.ADMIN)
+    public ApiResult<BulkCreateCardsResponse> createCardsBulk(
+            @Parameter(description = "Пользователи и количество карт на каждого")
+            @RequestBody BulkCreateCardsInput input) {
+        return new ApiResult.Success<>(cardService.createCardsForUsers(input.userIds(), input.countPerUser()));
+    }
+
     @Operation(
             summary = "Получение карт пользователя",
             description = "Для USER: возвращает свои карты. Для ADMIN: может указать userId для просмотра карт другого пользователя",
@@ -61,16 +102,21 @@ public class CardController {
     )
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("/user")
-    public ApiResult<Page<CardResponse>> getCards(
+    public ApiResult<PageResponse<CardResponse>> getCards(
             @Parameter(hidden = true) @OptionalUserId Long userId,
             @RequestParam(name = "number", required = false) String number,
-            @ParameterObject Pageable pageable) {
-        Page<Card> cards = (number == null || number.isEmpty())
+            @ParameterObject Pageable pageable,
+            WebRequest request) {
+        if (ConditionalRequests.notModified(request, "cards-user", userId,
+                cardService.getCardsVersion(userId), number, pageable)) {
+            return null;
+        }
+        Page<CardView> cards = (number == null || number.isEmpty())
                 ? cardService.findCardsByUserId(userId, pageable)
                 : cardService.findCardsByUserIdAndNumber(userId, number, pageable);
 
-        Page<CardResponse> response = cards.map(c ->
-                CardResponse.fromEntity(c, cardService.getMaskedNumber(c))
+        PageResponse<CardResponse> response = PageResponse.exact(cards).map(c ->
+                CardResponse.fromView(c, cardService.getMaskedNumber(c.number()))
         );
 
         return new ApiResult.Success<>(response);
@@ -96,10 +142,13 @@ public class CardController {
     @GetMapping
     public ApiResult<CardResponse> getCardById(
             @Parameter(hidden = true) @OptionalUserId Long userId,
-            @RequestParam(name = "cardId") Long cardId) {
-        Card card = cardService.getCardByIdForUser(cardId, userId);
-        String masked = cardService.getMaskedNumber(card);
-        return new ApiResult.Success<>(CardResponse.fromEntity(card, masked));
+            @RequestParam(name = "cardId") Long cardId,
+            WebRequest request) {
+        CardView card = cardService.getCardByIdForUser(cardId, userId);
+        if (ConditionalRequests.notModified(request, "card", card.id(), card.version())) {
+            return null;
+        }
+        return new ApiResult.Success<>(CardResponse.fromView(card, cardService.getMaskedNumber(card.number())));
     }
 
     @Operation(
@@ -120,6 +169,7 @@ public class CardController {
     @Operation(summary = "Подтверждение блокировки карты админом")
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/block/approve")
+    @Workload(WorkloadClass.ADMIN)
     public ApiResult<CardResponse> approveBlock(
             @Parameter(description = "ID карты") @RequestParam(name = "cardId") Long cardId) {
         Card card = cardService.approveBlockCard(cardId);
@@ -127,26 +177,117 @@ public class CardController {
         return new ApiResult.Success<>(CardResponse.fromEntity(card, masked));
     }
 
+    @Operation(
+            summary = "Подтверждение всех запросов на блокировку (админ)",
+            description = "Обрабатывает карты пачками, прогресс возвращается построчно в формате NDJSON"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/block/approve/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Workload(WorkloadClass.ADMIN)
+    public ResponseEntity<StreamingResponseBody> approveAllBlocks() {
+        return streamProgress("approve-all-block-requests", cardService::approveAllBlockRequests);
+    }
+
+    @Operation(
+            summary = "Блокировка всех активных карт пользователя (админ)",
+            description = "Обрабатывает карты пачками, прогресс возвращается построчно в формате NDJSON"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/block/user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Workload(WorkloadClass.ADMIN)
+    public ResponseEntity<StreamingResponseBody> blockUserCards(
+            @Parameter(description = "ID пользователя") @RequestParam(name = "userId") Long userId) {
+        return streamProgress("block-user-cards", progress -> cardService.blockAllUserCards(userId, progress));
+    }
+
+    @Operation(
+            summary = "Блокировка карт по списку ID (админ)",
+            description = "Обрабатывает карты пачками, прогресс возвращается построчно в формате NDJSON"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/block/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Workload(WorkloadClass.ADMIN)
+    public ResponseEntity<StreamingResponseBody> blockCards(
+            @Parameter(description = "Список ID карт") @RequestBody BulkBlockInput input) {
+        return streamProgress("block-cards", progress -> cardService.blockCards(input.cardIds(), progress));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamProgress(String operation,
+                                                                 ToLongFunction<LongConsumer> bulkOperation) {
+        StreamingResponseBody body = out -> {
+            try {
+                long total = bulkOperation.applyAsLong(processed ->
+                        writeLine(out, new ApiResult.Success<>(new BulkOperationProgress(operation, processed, false))));
+                writeLine(out, new ApiResult.Success<>(new BulkOperationProgress(operation, total, true)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (RuntimeException e) {
+                // Ответ уже начат, поэтому ошибка передаётся последней строкой потока
+                writeLine(out, new ApiResult.Error<>(e.getMessage()));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLine(OutputStream out, ApiResult<?> line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Operation(summary = "Удаление карты (админ)")
     @DeleteMapping
     @PreAuthorize("hasRole('ADMIN')")
+    @Workload(WorkloadClass.ADMIN)
     public ApiResult<String> deleteCard(@Parameter(description = "ID карты") @RequestParam(name = "cardId") Long cardId) {
         cardService.deleteCard(cardId);
         return new ApiResult.Success<>("Card deleted successfully");
     }
 
-    @Operation(summary = "Получение всех карт (админ)")
+    @Operation(
+            summary = "Получение всех карт (админ)",
+            description = "count=EXACT - точный итог, ESTIMATE - оценка по статистике таблицы, NONE - без итога"
+    )
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ApiResult<Page<CardResponse>> getAllCards(@ParameterObject Pageable pageable) {
-        Page<CardResponse> response = cardService.getAllCards(pageable)
-                .map(c -> CardResponse.fromEntity(c, cardService.getMaskedNumber(c)));
+    @Workload(WorkloadClass.ADMIN)
+    public ApiResult<PageResponse<CardResponse>> getAllCards(
+            @ParameterObject Pageable pageable,
+            @Parameter(description = "Способ подсчёта общего числа") @RequestParam(name = "count", defaultValue = "EXACT") CountMode count) {
+        PageResponse<CardResponse> response = cardService.getAllCards(pageable, count)
+                .map(c -> CardResponse.fromView(c, cardService.getMaskedNumber(c.number())));
+        return new ApiResult.Success<>(response);
+    }
+
+    @Operation(
+            summary = "Поиск карт с фильтрами (админ)",
+            description = "Фильтры по статусу, сроку действия, балансу и владельцу. Сортировка только по ID, EXPIRY_DATE "
+                    + "или BALANCE. Следующая страница запрашивается по nextCursor из предыдущего ответа"
+    )
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Workload(WorkloadClass.ADMIN)
+    public ApiResult<KeysetPage<CardResponse>> searchCards(
+            @ParameterObject CardSearchFilter filter,
+            @Parameter(description = "Ключ сортировки") @RequestParam(name = "sort", defaultValue = "ID") CardSortKey sort,
+            @Parameter(description = "Направление сортировки") @RequestParam(name = "direction", defaultValue = "ASC") Sort.Direction direction,
+            @Parameter(description = "Курсор следующей страницы") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Размер страницы") @RequestParam(name = "size", defaultValue = "20") int size) {
+        KeysetPage<CardResponse> response = cardService.searchCards(filter, sort, direction, cursor, size)
+                .map(c -> CardResponse.fromView(c, cardService.getMaskedNumber(c.number())));
         return new ApiResult.Success<>(response);
     }
 
     @Operation(summary = "Пополнение конкретной карты пользователем")
     @PreAuthorize("hasRole('USER')")
     @PostMapping("/deposit")
+    @Workload(WorkloadClass.TRANSFER_WRITE)
     public ApiResult<CardResponse> depositToCard(
             @Parameter(description = "ID карты") @RequestParam(name = "cardId") Long cardId,
             @Parameter(hidden = true) @CurrentUserId Long userId,
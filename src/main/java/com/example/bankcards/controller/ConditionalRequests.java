@@ -0,0 +1,30 @@
+package com.example.bankcards.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+
+// Строгий ETag из маркера версии и параметров запроса, без сериализации тела ответа
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Выставляет ETag и возвращает {@code true}, если он совпал с If-None-Match:
+     * статус 304 уже установлен, тело формировать не нужно.
+     * В ETag входит Accept, так как JSON, CBOR и Smile - разные представления.
+     */
+    static boolean notModified(WebRequest request, Object... parts) {
+        StringJoiner key = new StringJoiner("|");
+        for (Object part : parts) {
+            key.add(String.valueOf(part));
+        }
+        key.add(String.valueOf(request.getHeader(HttpHeaders.ACCEPT)));
+        String etag = "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        return request.checkNotModified(etag);
+    }
+}
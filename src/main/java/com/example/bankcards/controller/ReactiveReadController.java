@@ -0,0 +1,79 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.security.CurrentUserId;
+import com.example.bankcards.security.OptionalUserId;
+import com.example.bankcards.service.ReactiveReadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Реактивные копии эндпоинтов чтения под префиксом {@code /reactive}.
+ * Поток запроса освобождается на время обращения к БД. Списки отдаются NDJSON по одному элементу
+ * по мере запроса следующего (backpressure), следующая страница - по ID последнего элемента.
+ */
+@Tag(name = "Реактивное чтение", description = "Карты и история переводов через R2DBC")
+@RestController
+@RequestMapping("/reactive")
+@SecurityRequirement(name = "bearerAuth")
+public class ReactiveReadController {
+
+    private final ReactiveReadService reactiveReadService;
+
+    public ReactiveReadController(ReactiveReadService reactiveReadService) {
+        this.reactiveReadService = reactiveReadService;
+    }
+
+    @Operation(summary = "Карты пользователя (NDJSON)", description = "Для ADMIN можно указать userId")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping(value = "/cards/user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CardResponse> getCards(
+            @Parameter(hidden = true) @OptionalUserId Long userId,
+            @Parameter(description = "Фильтр по номеру") @RequestParam(name = "number", required = false) String number,
+            @Parameter(description = "ID последней полученной карты") @RequestParam(name = "afterId", required = false) Long afterId,
+            @Parameter(description = "Размер страницы") @RequestParam(name = "size", defaultValue = "100") int size) {
+        return reactiveReadService.getUserCards(userId, number, afterId, size);
+    }
+
+    @Operation(summary = "Карта пользователя", description = "Для ADMIN можно указать userId")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping("/cards")
+    public Mono<ApiResult<CardResponse>> getCardById(
+            @Parameter(hidden = true) @OptionalUserId Long userId,
+            @Parameter(description = "ID карты") @RequestParam(name = "cardId") Long cardId) {
+        return reactiveReadService.getCard(cardId, userId).<ApiResult<CardResponse>>map(ApiResult.Success::new);
+    }
+
+    @Operation(summary = "История переводов пользователя (NDJSON)")
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(value = "/transfers/history/user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TransferResponse> getTransfersByUser(
+            @Parameter(hidden = true) @CurrentUserId Long userId,
+            @Parameter(description = "ID последнего полученного перевода") @RequestParam(name = "beforeId", required = false) Long beforeId,
+            @Parameter(description = "Размер страницы") @RequestParam(name = "size", defaultValue = "100") int size) {
+        return reactiveReadService.getTransfersByUser(userId, beforeId, size);
+    }
+
+    @Operation(summary = "История переводов по своей карте (NDJSON)")
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(value = "/transfers/history/card", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TransferResponse> getTransfersByCard(
+            @Parameter(hidden = true) @CurrentUserId Long userId,
+            @Parameter(description = "ID карты") @RequestParam(name = "cardId") Long cardId,
+            @Parameter(description = "ID последнего полученного перевода") @RequestParam(name = "beforeId", required = false) Long beforeId,
+            @Parameter(description = "Размер страницы") @RequestParam(name = "size", defaultValue = "100") int size) {
+        return reactiveReadService.getTransfersByCard(cardId, userId, beforeId, size);
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.workload.Workload;
+import com.example.bankcards.config.workload.WorkloadClass;
 import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.transfer.TransferInput;
 import com.example.bankcards.dto.transfer.TransferResponse;
 import com.example.bankcards.security.CurrentUserId;
@@ -10,9 +13,9 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springdoc.core.annotations.ParameterObject;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
 
 @Tag(name = "Переводы", description = "Управление переводами между картами")
@@ -30,6 +33,7 @@ public class TransferController {
     @Operation(summary = "Перевод между своими картами")
     @PostMapping("/own")
     @PreAuthorize("hasRole('USER')")
+    @Workload(WorkloadClass.TRANSFER_WRITE)
     public ApiResult<TransferResponse> transferBetweenOwnCards(
             @Parameter(hidden = true) @CurrentUserId Long userId,
             @Parameter(description = "Данные перевода") @RequestBody TransferInput request
@@ -41,21 +45,33 @@ public class TransferController {
     @Operation(summary = "История переводов пользователя")
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/history/user")
-    public ApiResult<Page<TransferResponse>> getTransfersByUser(
+    @Workload(WorkloadClass.HISTORY_READ)
+    public ApiResult<PageResponse<TransferResponse>> getTransfersByUser(
             @Parameter(hidden = true) @CurrentUserId Long userId,
-            @ParameterObject Pageable pageable
+            @ParameterObject Pageable pageable,
+            WebRequest request
     ) {
-        return new ApiResult.Success<>(transferService.getTransfersByUser(userId, pageable));
+        if (ConditionalRequests.notModified(request, "transfers-user", userId,
+                transferService.getTransfersVersionByUser(userId), pageable)) {
+            return null;
+        }
+        return new ApiResult.Success<>(PageResponse.exact(transferService.getTransfersByUser(userId, pageable)));
     }
 
     @Operation(summary = "История переводов по карте")
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/history/card")
-    public ApiResult<Page<TransferResponse>> getTransfersByCard(
+    @Workload(WorkloadClass.HISTORY_READ)
+    public ApiResult<PageResponse<TransferResponse>> getTransfersByCard(
             @Parameter(description = "ID карты")
             @RequestParam(name = "cardId") Long cardId,
-            @ParameterObject Pageable pageable
+            @ParameterObject Pageable pageable,
+            WebRequest request
     ) {
-        return new ApiResult.Success<>(transferService.getTransfersByCard(cardId, pageable));
+        if (ConditionalRequests.notModified(request, "transfers-card", cardId,
+                transferService.getTransfersVersionByCard(cardId), pageable)) {
+            return null;
+        }
+        return new ApiResult.Success<>(PageResponse.exact(transferService.getTransfersByCard(cardId, pageable)));
     }
 }
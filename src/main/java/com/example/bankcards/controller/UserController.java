@@ -1,44 +1,70 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.workload.Workload;
+import com.example.bankcards.config.workload.WorkloadClass;
 import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.auth.AuthRequest;
 import com.example.bankcards.dto.auth.AuthResponse;
+import com.example.bankcards.dto.auth.RefreshTokenInput;
 import com.example.bankcards.dto.user.CreateUserInput;
+import com.example.bankcards.dto.user.UserDeletionJobResponse;
+import com.example.bankcards.dto.user.UserImportFormat;
 import com.example.bankcards.dto.user.UserResponse;
-import com.example.bankcards.entity.User;
-import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.dto.user.UserView;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.service.RefreshTokenService;
+import com.example.bankcards.service.UserImportService;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 @Tag(name = "Пользователи", description = "Управление пользователями")
 @RestController
 @RequestMapping("/user")
 @SecurityRequirement(name = "bearerAuth")
+@Workload(WorkloadClass.ADMIN)
 public class UserController {
     private final UserService userService;
     private final AuthenticationManager authenticationManager;
-    private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenService refreshTokenService;
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService, AuthenticationManager authenticationManager, JwtTokenProvider jwtTokenProvider) {
+    public UserController(UserService userService, AuthenticationManager authenticationManager, RefreshTokenService refreshTokenService,
+                          UserImportService userImportService, ObjectMapper objectMapper) {
         this.userService = userService;
         this.authenticationManager = authenticationManager;
-        this.jwtTokenProvider = jwtTokenProvider;
+        this.refreshTokenService = refreshTokenService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(summary = "Регистрация нового пользователя")
     @PostMapping("/register")
     @PreAuthorize("permitAll()")
+    @Workload(WorkloadClass.AUTH)
     public ApiResult<UserResponse> register(@Parameter(description = "Данные нового пользователя") @RequestBody CreateUserInput input) {
         return userService.register(input);
     }
@@ -46,12 +72,21 @@ public class UserController {
     @Operation(summary = "Авторизация пользователя")
     @PostMapping("/login")
     @PreAuthorize("permitAll()")
+    @Workload(WorkloadClass.AUTH)
     public ApiResult<AuthResponse> login(@Parameter(description = "Данные авторизации") @RequestBody AuthRequest request) {
+        // Проверка BCrypt идёт в пуле хеширования (см. SecurityConfig.authenticationManager), запросы в БД - здесь
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.email(), request.password())
         );
-        String token = jwtTokenProvider.generateToken(authentication);
-        return new ApiResult.Success<>(new AuthResponse(token));
+        return new ApiResult.Success<>(refreshTokenService.issueTokens(authentication));
+    }
+
+    @Operation(summary = "Обмен refresh-токена на новую пару токенов")
+    @PostMapping("/token/refresh")
+    @PreAuthorize("permitAll()")
+    @Workload(WorkloadClass.AUTH)
+    public ApiResult<AuthResponse> refreshToken(@Parameter(description = "Refresh-токен") @Valid @RequestBody RefreshTokenInput input) {
+        return new ApiResult.Success<>(refreshTokenService.refresh(input.refreshToken()));
     }
 
     @Operation(summary = "Получение пользователя по ID")
@@ -60,9 +95,9 @@ public class UserController {
     public ApiResult<UserResponse> getUserById(
             @Parameter(description = "ID пользователя")
             @RequestParam(name = "id") Long id) {
-        User user = userService.findById(id)
+        UserView user = userService.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return new ApiResult.Success<>(UserResponse.fromEntity(user));
+        return new ApiResult.Success<>(UserResponse.fromView(user));
     }
 
     @Operation(summary = "Получение пользователя по username")
@@ -71,9 +106,22 @@ public class UserController {
     public ApiResult<UserResponse> getUserByUsername(
             @Parameter(description = "Username пользователя")
             @RequestParam(name = "username") String username) {
-        User user = userService.findByUsername(username)
+        UserView user = userService.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return new ApiResult.Success<>(UserResponse.fromEntity(user));
+        return new ApiResult.Success<>(UserResponse.fromView(user));
+    }
+
+    @Operation(
+            summary = "Поиск пользователей по части username или email (админ)",
+            description = "Не меньше 3 символов. Следующая страница запрашивается по nextCursor из предыдущего ответа"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/search")
+    public ApiResult<KeysetPage<UserResponse>> searchUsers(
+            @Parameter(description = "Часть username или email") @RequestParam(name = "q") String query,
+            @Parameter(description = "Курсор следующей страницы") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Размер страницы") @RequestParam(name = "size", defaultValue = "20") int size) {
+        return new ApiResult.Success<>(userService.searchUsers(query, cursor, size).map(UserResponse::fromView));
     }
 
     @Operation(summary = "Получение пользователя по email")
@@ -82,26 +130,90 @@ public class UserController {
     public ApiResult<UserResponse> getUserByEmail(
             @Parameter(description = "Email пользователя")
             @RequestParam(name = "email") String email) {
-        User user = userService.findByEmail(email)
+        UserView user = userService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return new ApiResult.Success<>(UserResponse.fromEntity(user));
+        return new ApiResult.Success<>(UserResponse.fromView(user));
+    }
+
+    @Operation(
+            summary = "Массовый импорт пользователей (админ)",
+            description = "Принимает CSV с заголовком (email,username,password|passwordHash,role) или NDJSON. "
+                    + "Прогресс и ошибки строк возвращаются построчно в формате NDJSON"
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import",
+            consumes = {UserImportFormat.CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsers(HttpServletRequest request) {
+        UserImportFormat format = UserImportFormat.fromContentType(request.getContentType());
+        StreamingResponseBody body = out -> {
+            try {
+                userImportService.importUsers(request.getInputStream(), format,
+                        progress -> writeLine(out, new ApiResult.Success<>(progress)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (RuntimeException e) {
+                // Ответ уже начат, поэтому ошибка передаётся последней строкой потока
+                writeLine(out, new ApiResult.Error<>(e.getMessage()));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
-    @Operation(summary = "Удаление пользователя")
+    private void writeLine(OutputStream out, ApiResult<?> line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Operation(summary = "Изменение роли пользователя")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("/role")
+    public ApiResult<UserResponse> changeRole(
+            @Parameter(description = "ID пользователя")
+            @RequestParam(name = "id") Long id,
+            @Parameter(description = "Новая роль")
+            @RequestParam(name = "role") Role role) {
+        return new ApiResult.Success<>(UserResponse.fromView(userService.changeRole(id, role)));
+    }
+
+    @Operation(
+            summary = "Удаление пользователя",
+            description = "Пользователь скрывается сразу, карты и учётная запись удаляются в фоне; возвращается задача удаления"
+    )
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping
-    public ApiResult<Void> deleteUser(
+    public ApiResult<UserDeletionJobResponse> deleteUser(
             @Parameter(description = "ID пользователя")
             @RequestParam(name = "id") Long id) {
-        userService.deleteUser(id);
-        return new ApiResult.Success<>(null);
+        return new ApiResult.Success<>(userService.deleteUser(id));
+    }
+
+    @Operation(summary = "Статус фонового удаления пользователя")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/deletion-job")
+    public ApiResult<UserDeletionJobResponse> getDeletionJob(
+            @Parameter(description = "ID задачи удаления")
+            @RequestParam(name = "id") Long id) {
+        return new ApiResult.Success<>(userService.getDeletionJob(id));
     }
 
-    @Operation(summary = "Получение всех пользователей (с пагинацией)")
+    @Operation(
+            summary = "Получение всех пользователей (с пагинацией)",
+            description = "count=EXACT - точный итог, ESTIMATE - оценка по статистике таблицы, NONE - без итога"
+    )
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/all")
-    public ApiResult<Page<UserResponse>> getAllUsers(@ParameterObject Pageable pageable) {
-        Page<UserResponse> response = userService.getAllUsers(pageable)
+    public ApiResult<PageResponse<UserResponse>> getAllUsers(
+            @ParameterObject Pageable pageable,
+            @Parameter(description = "Способ подсчёта общего числа") @RequestParam(name = "count", defaultValue = "EXACT") CountMode count) {
+        PageResponse<UserResponse> response = userService.getAllUsers(pageable, count)
                 .map(UserResponse::fromEntity);
         return new ApiResult.Success<>(response);
     }
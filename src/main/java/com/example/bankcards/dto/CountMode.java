@@ -0,0 +1,11 @@
+package com.example.bankcards.dto;
+
+// Как считать общее число элементов для списков
+public enum CountMode {
+    // Точный count(*)
+    EXACT,
+    // Оценка планировщика из pg_class.reltuples, без count(*)
+    ESTIMATE,
+    // Без общего числа: только признак наличия следующей страницы
+    NONE
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Страница keyset-пагинации: следующая страница запрашивается по nextCursor, без OFFSET
+public record KeysetPage<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext
+) {
+    public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new KeysetPage<>(content.stream().<R>map(mapper).toList(), nextCursor, hasNext);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка. {@code totalKind} показывает, точное ли значение {@code totalElements}:
+ * при {@link CountMode#ESTIMATE} это оценка, при {@link CountMode#NONE} поля с итогами пустые.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PageResponse<T>(
+        List<T> content,
+        int page,
+        int size,
+        boolean hasNext,
+        Long totalElements,
+        Integer totalPages,
+        CountMode totalKind
+) {
+    public static <T> PageResponse<T> exact(Page<T> page) {
+        return new PageResponse<>(page.getContent(), page.getNumber(), page.getSize(), page.hasNext(),
+                page.getTotalElements(), page.getTotalPages(), CountMode.EXACT);
+    }
+
+    public static <T> PageResponse<T> uncounted(Slice<T> slice) {
+        return new PageResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(),
+                null, null, CountMode.NONE);
+    }
+
+    public static <T> PageResponse<T> estimated(Slice<T> slice, long estimate) {
+        long offset = (long) slice.getNumber() * slice.getSize();
+        long seen = offset + slice.getNumberOfElements();
+        if (!slice.hasNext() && (slice.hasContent() || offset == 0)) {
+            // Последняя страница - итог известен точно
+            return new PageResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), false,
+                    seen, totalPages(seen, slice.getSize()), CountMode.EXACT);
+        }
+        if (!slice.hasNext()) {
+            // Страница за концом списка: известно только, что записей не больше смещения
+            long total = Math.min(estimate, offset);
+            return new PageResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), false,
+                    total, totalPages(total, slice.getSize()), CountMode.ESTIMATE);
+        }
+        // Статистика может отставать от таблицы: оценка не меньше уже увиденного плюс следующая запись
+        long total = Math.max(estimate, seen + 1);
+        return new PageResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), true,
+                total, totalPages(total, slice.getSize()), CountMode.ESTIMATE);
+    }
+
+    public <R> PageResponse<R> map(Function<? super T, ? extends R> mapper) {
+        return new PageResponse<>(content.stream().<R>map(mapper).toList(), page, size, hasNext,
+                totalElements, totalPages, totalKind);
+    }
+
+    private static int totalPages(long total, int size) {
+        return size == 0 ? 1 : (int) ((total + size - 1) / size);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.dto;
+
+// Дешёвый маркер состояния набора строк для ETag: меняется при вставке, удалении и (через versionSum) обновлении
+public record VersionMarker(
+        Long count,
+        Long maxId,
+        Long versionSum
+) {
+}
@@ -1,4 +1,4 @@
 package com.example.bankcards.dto.auth;
 
-public record AuthResponse(String token) {
-}
\ No newline at end of file
+public record AuthResponse(String token, String refreshToken) {
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.dto.auth;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenInput(@NotBlank String refreshToken) {
+}
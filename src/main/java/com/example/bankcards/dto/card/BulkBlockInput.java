@@ -0,0 +1,9 @@
+package com.example.bankcards.dto.card;
+
+import java.util.List;
+
+// Пустой список отклоняет CardService.blockCards
+public record BulkBlockInput(
+        List<Long> cardIds
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.dto.card;
+
+import java.util.List;
+
+// Проверки (непустой список, положительное количество) - в CardService.createCardsForUsers
+public record BulkCreateCardsInput(
+        List<Long> userIds,
+        int countPerUser
+) {
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.dto.card;
+
+public record BulkCreateCardsResponse(
+        int usersCount,
+        int cardsCreated
+) {
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.dto.card;
+
+public record BulkOperationProgress(
+        String operation,
+        long processed,
+        boolean completed
+) {
+}
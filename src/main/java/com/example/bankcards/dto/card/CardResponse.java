@@ -26,4 +26,16 @@ public record CardResponse(
                 card.getUser().getUsername()
         );
     }
+
+    public static CardResponse fromView(CardView view, String maskedNumber) {
+        return new CardResponse(
+                view.id(),
+                maskedNumber,
+                view.status(),
+                view.balance(),
+                view.expiryDate(),
+                view.blockRequested(),
+                view.userUsername()
+        );
+    }
 }
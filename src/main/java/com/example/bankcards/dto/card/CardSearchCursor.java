@@ -0,0 +1,42 @@
+package com.example.bankcards.dto.card;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция последней выданной карты в поиске: значение ключа сортировки и ID.
+ * Клиенту отдаётся в виде непрозрачной base64-строки.
+ */
+public record CardSearchCursor(
+        CardSortKey sort,
+        Sort.Direction direction,
+        Comparable<?> value,
+        long id
+) {
+    private static final String SEPARATOR = "|";
+
+    public static CardSearchCursor after(CardView view, CardSortKey sort, Sort.Direction direction) {
+        return new CardSearchCursor(sort, direction, sort.valueOf(view), view.id());
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sort.name(), direction.name(), value.toString(), Long.toString(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CardSearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            CardSortKey sort = CardSortKey.valueOf(parts[0]);
+            return new CardSearchCursor(sort, Sort.Direction.valueOf(parts[1]), sort.parse(parts[2]), Long.parseLong(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
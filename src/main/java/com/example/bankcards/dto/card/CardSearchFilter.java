@@ -0,0 +1,18 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Все поля необязательны, заданные условия объединяются через AND
+public record CardSearchFilter(
+        CardStatus status,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryFrom,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryTo,
+        BigDecimal minBalance,
+        BigDecimal maxBalance,
+        Long userId
+) {
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.dto.card;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+// Разрешённые ключи сортировки поиска карт; для каждого есть индекс (ключ, id)
+public enum CardSortKey {
+    ID("id", CardView::id, Long::valueOf),
+    EXPIRY_DATE("expiryDate", CardView::expiryDate, LocalDate::parse),
+    BALANCE("balance", CardView::balance, BigDecimal::new);
+
+    private final String attribute;
+    private final Function<CardView, Comparable<?>> extractor;
+    private final Function<String, Comparable<?>> parser;
+
+    CardSortKey(String attribute, Function<CardView, Comparable<?>> extractor, Function<String, Comparable<?>> parser) {
+        this.attribute = attribute;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public Comparable<?> valueOf(CardView view) {
+        return extractor.apply(view);
+    }
+
+    public Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Плоская проекция карты для списков: только колонки, нужные CardResponse, без загрузки сущностей
+public record CardView(
+        Long id,
+        String number,
+        CardStatus status,
+        BigDecimal balance,
+        LocalDate expiryDate,
+        boolean blockRequested,
+        Long userId,
+        String userUsername,
+        Long version
+) {
+}
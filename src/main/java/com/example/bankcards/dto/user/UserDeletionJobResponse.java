@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.user;
+
+import com.example.bankcards.entity.UserDeletionJob;
+import com.example.bankcards.entity.UserDeletionStatus;
+
+import java.time.LocalDateTime;
+
+public record UserDeletionJobResponse(
+        Long id,
+        Long userId,
+        UserDeletionStatus status,
+        long cardsDeleted,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+    public static UserDeletionJobResponse fromEntity(UserDeletionJob job) {
+        return new UserDeletionJobResponse(job.getId(), job.getUserId(), job.getStatus(), job.getCardsDeleted(),
+                job.getError(), job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.bankcards.dto.user;
+
+public record UserImportFailure(long line, String error) {
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto.user;
+
+import java.util.List;
+
+// Прогресс после очередной пачки; failures - ошибки строк этой пачки
+public record UserImportProgress(
+        long processed,
+        long imported,
+        List<UserImportFailure> failures,
+        boolean completed
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.user;
+
+import com.example.bankcards.entity.Role;
+
+// Строка импорта: либо password (будет захеширован), либо готовый BCrypt-хеш passwordHash; роль по умолчанию USER
+public record UserImportRow(
+        long line,
+        String email,
+        String username,
+        String password,
+        String passwordHash,
+        Role role
+) {
+}
+
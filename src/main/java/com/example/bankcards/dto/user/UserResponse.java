@@ -7,4 +7,8 @@ public record UserResponse(String username, String email, Role role) {
     public static UserResponse fromEntity(User user) {
         return new UserResponse(user.getUsername(), user.getEmail(), user.getRole());
     }
+
+    public static UserResponse fromView(UserView user) {
+        return new UserResponse(user.username(), user.email(), user.role());
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.user;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+
+// Данные пользователя для кеша и ответов - без хеша пароля
+public record UserView(Long id, String username, String email, Role role) {
+    public static UserView fromEntity(User user) {
+        return new UserView(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+    }
+}
@@ -11,7 +11,8 @@ import java.util.List;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_id_seq")
+    @SequenceGenerator(name = "cards_id_seq", sequenceName = "cards_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -24,8 +25,9 @@ public class Card {
     @Column(nullable = false)
     private BigDecimal balance = BigDecimal.ZERO;
 
+    // null у удалённой карты: строка остаётся ради истории переводов, владелец - в card_tombstones
     @ManyToOne()
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id")
     private User user;
 
     @OneToMany(mappedBy = "fromCard")
@@ -39,6 +41,13 @@ public class Card {
 
     private boolean blockRequested = false;
 
+    @Version
+    private Long version;
+
+    public Long getVersion() {
+        return version;
+    }
+
     public Long getId() {
         return id;
     }
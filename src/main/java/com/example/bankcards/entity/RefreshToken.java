@@ -0,0 +1,110 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "refresh_tokens")
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_id_seq")
+    @SequenceGenerator(name = "refresh_tokens_id_seq", sequenceName = "refresh_tokens_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Хранится только SHA-256 токена
+    @Column(name = "token_hash", nullable = false, unique = true)
+    private String tokenHash;
+
+    // Все токены одной цепочки ротации; при повторном использовании отзывается вся цепочка
+    @Column(name = "family_id", nullable = false)
+    private String familyId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public RefreshToken setId(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public RefreshToken setUserId(Long userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public RefreshToken setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+        return this;
+    }
+
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public RefreshToken setFamilyId(String familyId) {
+        this.familyId = familyId;
+        return this;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public RefreshToken setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+        return this;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public RefreshToken setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+        return this;
+    }
+
+    public LocalDateTime getUsedAt() {
+        return usedAt;
+    }
+
+    public RefreshToken setUsedAt(LocalDateTime usedAt) {
+        this.usedAt = usedAt;
+        return this;
+    }
+
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public RefreshToken setRevokedAt(LocalDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+        return this;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Отзыв одного access-токена (tokenId) или всех токенов пользователя, выданных до revokedAt (userId)
+@Entity
+@Table(name = "token_revocations")
+public class TokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "token_revocations_id_seq")
+    @SequenceGenerator(name = "token_revocations_id_seq", sequenceName = "token_revocations_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "token_id")
+    private String tokenId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt = LocalDateTime.now();
+
+    // После этого момента все затронутые токены истекли сами, запись можно удалить
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public TokenRevocation setId(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public TokenRevocation setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+        return this;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public TokenRevocation setUserId(Long userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public TokenRevocation setRevokedAt(LocalDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+        return this;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public TokenRevocation setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+        return this;
+    }
+}
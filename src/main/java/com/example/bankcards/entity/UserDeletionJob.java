@@ -0,0 +1,110 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Фоновое удаление пользователя после мягкого удаления; user_id без внешнего ключа - задача переживает пользователя
+@Entity
+@Table(name = "user_deletion_jobs")
+public class UserDeletionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_deletion_jobs_id_seq")
+    @SequenceGenerator(name = "user_deletion_jobs_id_seq", sequenceName = "user_deletion_jobs_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private UserDeletionStatus status = UserDeletionStatus.PENDING;
+
+    @Column(name = "cards_deleted", nullable = false)
+    private long cardsDeleted;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public UserDeletionJob setId(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public UserDeletionJob setUserId(Long userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public UserDeletionStatus getStatus() {
+        return status;
+    }
+
+    public UserDeletionJob setStatus(UserDeletionStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public long getCardsDeleted() {
+        return cardsDeleted;
+    }
+
+    public UserDeletionJob setCardsDeleted(long cardsDeleted) {
+        this.cardsDeleted = cardsDeleted;
+        return this;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public UserDeletionJob setError(String error) {
+        this.error = error;
+        return this;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public UserDeletionJob setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+        return this;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public UserDeletionJob setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+        return this;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public UserDeletionJob setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+        return this;
+    }
+}
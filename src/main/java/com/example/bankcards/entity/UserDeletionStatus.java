@@ -0,0 +1,8 @@
+package com.example.bankcards.entity;
+
+public enum UserDeletionStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -1,37 +1,165 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.VersionMarker;
+import com.example.bankcards.dto.card.CardView;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardSearchRepository {
 
-    Page<Card> findByUserId(Long userId, Pageable pageable);
-    Page<Card> findByUserIdAndNumberContaining(Long userId, String partialNumber, Pageable pageable);
+    @Query(value = """
+            select new com.example.bankcards.dto.card.CardView(
+                c.id, c.number, c.status, c.balance, c.expiryDate, c.blockRequested, u.id, u.username, c.version)
+            from Card c join c.user u
+            where u.id = :userId
+            """,
+            countQuery = "select count(c) from Card c join c.user u where u.id = :userId")
+    Page<CardView> findViewsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = """
+            select new com.example.bankcards.dto.card.CardView(
+                c.id, c.number, c.status, c.balance, c.expiryDate, c.blockRequested, u.id, u.username, c.version)
+            from Card c join c.user u
+            where u.id = :userId and c.number like concat('%', :number, '%')
+            """,
+            countQuery = "select count(c) from Card c join c.user u where u.id = :userId and c.number like concat('%', :number, '%')")
+    Page<CardView> findViewsByUserIdAndNumberContaining(@Param("userId") Long userId,
+                                                        @Param("number") String partialNumber,
+                                                        Pageable pageable);
+
+    @Query(value = """
+            select new com.example.bankcards.dto.card.CardView(
+                c.id, c.number, c.status, c.balance, c.expiryDate, c.blockRequested, u.id, u.username, c.version)
+            from Card c join c.user u
+            """,
+            countQuery = "select count(c) from Card c join c.user u")
+    Page<CardView> findAllViews(Pageable pageable);
+
+    // Та же выборка без count-запроса: Spring Data запрашивает size + 1 строку для hasNext
+    @Query("""
+            select new com.example.bankcards.dto.card.CardView(
+                c.id, c.number, c.status, c.balance, c.expiryDate, c.blockRequested, u.id, u.username, c.version)
+            from Card c join c.user u
+            """)
+    Slice<CardView> findAllViewsSlice(Pageable pageable);
     boolean existsByNumber(String number);
+
+    @Query("""
+            select new com.example.bankcards.dto.VersionMarker(count(c), coalesce(max(c.id), 0L), coalesce(sum(c.version), 0L))
+            from Card c
+            where c.user.id = :userId
+            """)
+    VersionMarker findVersionMarkerByUserId(@Param("userId") Long userId);
+
+    @Query("select c.number from Card c where c.number in :numbers")
+    List<String> findExistingNumbers(@Param("numbers") Collection<String> numbers);
+
     Optional<Card> findByIdAndUserId(Long id, Long userId);
 
+    @Query("""
+            select new com.example.bankcards.dto.card.CardView(
+                c.id, c.number, c.status, c.balance, c.expiryDate, c.blockRequested, u.id, u.username, c.version)
+            from Card c join c.user u
+            where c.id = :id and u.id = :userId
+            """)
+    Optional<CardView> findViewByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("select c.user.id from Card c where c.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select c from Card c where c.id = :id")
     Optional<Card> findByIdForUpdate(@Param("id") Long id);
 
     @Modifying
-    @Query("update Card c set c.balance = c.balance + :amount where c.id = :id")
+    @Query("update Card c set c.balance = c.balance + :amount, c.version = c.version + 1 where c.id = :id")
     int updateBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
 
-    List<Card> findByStatusAndExpiryDateBefore(CardStatus status, LocalDate expiryDate);
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cards SET status = 'EXPIRED', version = version + 1
+            WHERE id IN (SELECT id FROM cards
+                         WHERE status = 'ACTIVE' AND expiry_date < :today
+                         LIMIT :limit
+                         FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int expireActiveCardsBatch(@Param("today") LocalDate today, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cards SET status = 'BLOCKED', block_requested = false, version = version + 1
+            WHERE block_requested = true
+              AND id IN (SELECT id FROM cards WHERE block_requested = true LIMIT :limit)
+            """, nativeQuery = true)
+    int approveBlockRequestsBatch(@Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cards SET status = 'BLOCKED', block_requested = false, version = version + 1
+            WHERE user_id = :userId AND status = 'ACTIVE'
+              AND id IN (SELECT id FROM cards WHERE user_id = :userId AND status = 'ACTIVE' LIMIT :limit)
+            """, nativeQuery = true)
+    int blockUserCardsBatch(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cards SET status = 'BLOCKED', block_requested = false, version = version + 1
+            WHERE id IN (:ids) AND status = 'ACTIVE'
+            """, nativeQuery = true)
+    int blockCardsByIds(@Param("ids") Collection<Long> ids);
+
+    // Удалённая карта не стирается: на неё ссылаются переводы. Владелец уходит в card_tombstones,
+    // карта отвязывается от него и блокируется - надгробие и отвязка в одном выражении
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH doomed AS (
+                SELECT id, user_id FROM cards WHERE id = :id AND user_id IS NOT NULL FOR UPDATE
+            ), tombstones AS (
+                INSERT INTO card_tombstones (card_id, user_id, deleted_at)
+                SELECT id, user_id, now() FROM doomed
+                ON CONFLICT (card_id) DO NOTHING
+            )
+            UPDATE cards SET user_id = NULL, status = 'BLOCKED', block_requested = false, version = version + 1
+            WHERE id IN (SELECT id FROM doomed)
+            """, nativeQuery = true)
+    int tombstoneCard(@Param("id") Long id);
+
+    // Одна пачка карт удаляемого пользователя, так же как tombstoneCard
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH doomed AS (
+                SELECT id, user_id FROM cards WHERE user_id = :userId LIMIT :limit FOR UPDATE
+            ), tombstones AS (
+                INSERT INTO card_tombstones (card_id, user_id, deleted_at)
+                SELECT id, user_id, now() FROM doomed
+                ON CONFLICT (card_id) DO NOTHING
+            )
+            UPDATE cards SET user_id = NULL, status = 'BLOCKED', block_requested = false, version = version + 1
+            WHERE id IN (SELECT id FROM doomed)
+            """, nativeQuery = true)
+    int tombstoneUserCardsBatch(@Param("userId") Long userId, @Param("limit") int limit);
 
     List<Card> findByUserIdAndStatusAndExpiryDateBefore(Long userId, CardStatus status, LocalDate expiryDate);
 
@@ -0,0 +1,20 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.card.CardSearchCursor;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
+import com.example.bankcards.entity.Card;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface CardSearchRepository {
+
+    /**
+     * Возвращает до {@code limit} карт, подходящих под {@code spec}, в порядке (ключ сортировки, id),
+     * начиная строго после {@code after}. Если {@code after} равен null - с начала.
+     */
+    List<CardView> searchViews(Specification<Card> spec, CardSortKey sort, Sort.Direction direction,
+                               CardSearchCursor after, int limit);
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.card.CardSearchCursor;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class CardSearchRepositoryImpl implements CardSearchRepository {
+
+    private final EntityManager entityManager;
+
+    CardSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<CardView> searchViews(Specification<Card> spec, CardSortKey sort, Sort.Direction direction,
+                                      CardSearchCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardView> query = cb.createQuery(CardView.class);
+        Root<Card> card = query.from(Card.class);
+        Join<Card, User> user = card.join("user");
+        query.select(cb.construct(CardView.class,
+                card.get("id"), card.get("number"), card.get("status"), card.get("balance"),
+                card.get("expiryDate"), card.get("blockRequested"), user.get("id"), user.get("username"),
+                card.get("version")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = spec == null ? null : spec.toPredicate(card, query, cb);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (after != null) {
+            predicates.add(seek(cb, card, sort, direction, after));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+
+        Expression<?> key = card.get(sort.attribute());
+        Expression<?> id = card.get("id");
+        query.orderBy(direction.isAscending()
+                ? List.of(cb.asc(key), cb.asc(id))
+                : List.of(cb.desc(key), cb.desc(id)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // key >= v AND (key > v OR id > lastId): первое условие даёт границу для индекса (key, id),
+    // второе отсекает уже выданные строки с тем же значением ключа
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seek(CriteriaBuilder cb, Root<Card> card, CardSortKey sort, Sort.Direction direction,
+                           CardSearchCursor after) {
+        Expression<Long> id = card.get("id");
+        if (sort == CardSortKey.ID) {
+            return direction.isAscending() ? cb.greaterThan(id, after.id()) : cb.lessThan(id, after.id());
+        }
+        Expression key = card.get(sort.attribute());
+        Comparable value = after.value();
+        if (direction.isAscending()) {
+            return cb.and(cb.greaterThanOrEqualTo(key, value),
+                    cb.or(cb.greaterThan(key, value), cb.greaterThan(id, after.id())));
+        }
+        return cb.and(cb.lessThanOrEqualTo(key, value),
+                cb.or(cb.lessThan(key, value), cb.lessThan(id, after.id())));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.card.CardSearchFilter;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Условия поиска карт; null-аргумент означает отсутствие условия
+public final class CardSpecifications {
+
+    private CardSpecifications() {
+    }
+
+    public static Specification<Card> matching(CardSearchFilter filter) {
+        return Specification.where(hasStatus(filter.status()))
+                .and(expiresFrom(filter.expiryFrom()))
+                .and(expiresTo(filter.expiryTo()))
+                .and(balanceFrom(filter.minBalance()))
+                .and(balanceTo(filter.maxBalance()))
+                .and(ownedBy(filter.userId()));
+    }
+
+    public static Specification<Card> hasStatus(CardStatus status) {
+        return status == null ? null : (card, query, cb) -> cb.equal(card.get("status"), status);
+    }
+
+    public static Specification<Card> expiresFrom(LocalDate from) {
+        return from == null ? null : (card, query, cb) -> cb.greaterThanOrEqualTo(card.get("expiryDate"), from);
+    }
+
+    public static Specification<Card> expiresTo(LocalDate to) {
+        return to == null ? null : (card, query, cb) -> cb.lessThanOrEqualTo(card.get("expiryDate"), to);
+    }
+
+    public static Specification<Card> balanceFrom(BigDecimal min) {
+        return min == null ? null : (card, query, cb) -> cb.greaterThanOrEqualTo(card.get("balance"), min);
+    }
+
+    public static Specification<Card> balanceTo(BigDecimal max) {
+        return max == null ? null : (card, query, cb) -> cb.lessThanOrEqualTo(card.get("balance"), max);
+    }
+
+    public static Specification<Card> ownedBy(Long userId) {
+        return userId == null ? null : (card, query, cb) -> cb.equal(card.get("user").get("id"), userId);
+    }
+}
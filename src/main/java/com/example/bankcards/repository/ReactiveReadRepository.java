@@ -0,0 +1,127 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.CardCryptoUtil;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Реактивные запросы чтения карт и истории переводов через R2DBC.
+ * Строки сразу отображаются в DTO ответа, сущности и контекст персистентности не создаются.
+ * Списки - keyset по ID: карты по возрастанию после {@code afterId}, переводы по убыванию до {@code beforeId}.
+ */
+@Repository
+public class ReactiveReadRepository {
+
+    private static final String CARD_COLUMNS = """
+            SELECT c.id, c.number, c.status::text AS status, c.balance, c.expiry_date, c.block_requested, u.username
+            FROM cards c
+            JOIN users u ON u.id = c.user_id AND u.deleted_at IS NULL
+            """;
+
+    private final DatabaseClient databaseClient;
+    private final CardCryptoUtil cryptoUtil;
+
+    public ReactiveReadRepository(DatabaseClient databaseClient, CardCryptoUtil cryptoUtil) {
+        this.databaseClient = databaseClient;
+        this.cryptoUtil = cryptoUtil;
+    }
+
+    public Flux<CardResponse> findCardsByUserId(Long userId, String number, long afterId, int limit) {
+        boolean byNumber = number != null && !number.isEmpty();
+        String sql = CARD_COLUMNS
+                + "WHERE c.user_id = :userId AND c.id > :afterId\n"
+                + (byNumber ? "AND c.number LIKE :number\n" : "")
+                + "ORDER BY c.id\nLIMIT :limit";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("userId", userId)
+                .bind("afterId", afterId)
+                .bind("limit", limit);
+        if (byNumber) {
+            spec = spec.bind("number", "%" + number + "%");
+        }
+        return spec.map(this::toCard).all();
+    }
+
+    public Mono<CardResponse> findCardByIdAndUserId(Long cardId, Long userId) {
+        return databaseClient.sql(CARD_COLUMNS + """
+                        WHERE c.id = :cardId AND c.user_id = :userId
+                        """)
+                .bind("cardId", cardId)
+                .bind("userId", userId)
+                .map(this::toCard)
+                .one();
+    }
+
+    // UNION по обеим сторонам перевода: каждая ветка идёт по своему индексу, перевод между своими картами - одна строка
+    public Flux<TransferResponse> findTransfersByUserId(Long userId, long beforeId, int limit) {
+        return databaseClient.sql("""
+                        SELECT id, from_card_id, to_card_id, amount, transfer_date FROM (
+                            SELECT t.id, t.from_card_id, t.to_card_id, t.amount, t.transfer_date
+                            FROM transfers t JOIN cards c ON c.id = t.from_card_id
+                            WHERE c.user_id = :userId AND t.id < :beforeId
+                            UNION
+                            SELECT t.id, t.from_card_id, t.to_card_id, t.amount, t.transfer_date
+                            FROM transfers t JOIN cards c ON c.id = t.to_card_id
+                            WHERE c.user_id = :userId AND t.id < :beforeId
+                        ) history
+                        ORDER BY id DESC
+                        LIMIT :limit
+                        """)
+                .bind("userId", userId)
+                .bind("beforeId", beforeId)
+                .bind("limit", limit)
+                .map(ReactiveReadRepository::toTransfer)
+                .all();
+    }
+
+    // Только по своей карте: пустой результат, если карта принадлежит другому пользователю
+    public Flux<TransferResponse> findTransfersByCardId(Long cardId, Long userId, long beforeId, int limit) {
+        return databaseClient.sql("""
+                        SELECT t.id, t.from_card_id, t.to_card_id, t.amount, t.transfer_date
+                        FROM transfers t
+                        WHERE (t.from_card_id = :cardId OR t.to_card_id = :cardId)
+                          AND t.id < :beforeId
+                          AND EXISTS (SELECT 1 FROM cards c WHERE c.id = :cardId AND c.user_id = :userId)
+                        ORDER BY t.id DESC
+                        LIMIT :limit
+                        """)
+                .bind("cardId", cardId)
+                .bind("userId", userId)
+                .bind("beforeId", beforeId)
+                .bind("limit", limit)
+                .map(ReactiveReadRepository::toTransfer)
+                .all();
+    }
+
+    private CardResponse toCard(Readable row) {
+        return new CardResponse(
+                row.get("id", Long.class),
+                CardCryptoUtil.mask(cryptoUtil.decrypt(row.get("number", String.class))),
+                CardStatus.valueOf(row.get("status", String.class)),
+                row.get("balance", BigDecimal.class),
+                row.get("expiry_date", LocalDate.class),
+                Boolean.TRUE.equals(row.get("block_requested", Boolean.class)),
+                row.get("username", String.class)
+        );
+    }
+
+    private static TransferResponse toTransfer(Readable row) {
+        return new TransferResponse(
+                row.get("id", Long.class),
+                row.get("from_card_id", Long.class),
+                row.get("to_card_id", Long.class),
+                row.get("amount", BigDecimal.class),
+                row.get("transfer_date", LocalDateTime.class)
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.repository;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+// Оценки размеров таблиц из статистики Postgres, без сканирования таблиц
+@Repository
+public class TableStatsRepository {
+
+    private final EntityManager entityManager;
+
+    public TableStatsRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Оценка числа строк по {@code pg_class.reltuples}, которую обновляют ANALYZE и autovacuum.
+     * Пусто, если таблица ещё не анализировалась.
+     */
+    public Optional<Long> estimateRowCount(String table) {
+        List<?> result = entityManager.createNativeQuery(
+                        "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(:table)")
+                .setParameter("table", table)
+                .getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return Optional.empty();
+        }
+        long estimate = ((Number) result.get(0)).longValue();
+        return estimate < 0 ? Optional.empty() : Optional.of(estimate);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    List<TokenRevocation> findByRevokedAtAfter(LocalDateTime since);
+
+    List<TokenRevocation> findByExpiresAtAfter(LocalDateTime now);
+
+    @Query("""
+            select count(r) > 0 from TokenRevocation r
+            where r.tokenId = :tokenId or (r.userId = :userId and r.revokedAt >= :issuedAt)
+            """)
+    boolean isRevoked(@Param("tokenId") String tokenId,
+                      @Param("userId") Long userId,
+                      @Param("issuedAt") LocalDateTime issuedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TokenRevocation r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,15 +1,55 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.VersionMarker;
 import com.example.bankcards.entity.Transfer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface TransferRepository extends JpaRepository<Transfer, Long> {
     Page<Transfer> findByFromCard_User_IdOrToCard_User_Id(Long fromUserId, Long toUserId, Pageable pageable);
 
-    Page<Transfer> findByFromCard_Id(Long cardId, Pageable pageable);
-    Page<Transfer> findByToCard_Id(Long cardId, Pageable pageable);
+    // Страница истории карты, новые первыми: по дате, при равной дате - по ID. Один ID порядком не служит:
+    // узлы берут из transfers_id_seq блоки по 50, и более поздний перевод может получить меньший ID.
+    // Каждая ветка UNION читает по своему индексу (card_id, transfer_date, id) не больше fetch = offset + limit строк
+    @Query(value = """
+            SELECT * FROM (
+                SELECT * FROM (SELECT * FROM transfers WHERE from_card_id = :cardId
+                               ORDER BY transfer_date DESC, id DESC LIMIT :fetch) outgoing
+                UNION
+                SELECT * FROM (SELECT * FROM transfers WHERE to_card_id = :cardId
+                               ORDER BY transfer_date DESC, id DESC LIMIT :fetch) incoming
+            ) history
+            ORDER BY transfer_date DESC, id DESC
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<Transfer> findPageByCardId(@Param("cardId") Long cardId, @Param("fetch") long fetch,
+                                    @Param("limit") int limit, @Param("offset") long offset);
+
+    @Query("select count(t) from Transfer t where t.fromCard.id = :cardId or t.toCard.id = :cardId")
+    long countByCardId(@Param("cardId") Long cardId);
+
+    // Переводы только добавляются, поэтому количества и максимального ID достаточно для маркера версии.
+    // Внешние соединения: карта второй стороны может быть удалена и не иметь владельца
+    @Query("""
+            select new com.example.bankcards.dto.VersionMarker(count(t), coalesce(max(t.id), 0L), 0L)
+            from Transfer t
+            left join t.fromCard f
+            left join t.toCard tc
+            where f.user.id = :userId or tc.user.id = :userId
+            """)
+    VersionMarker findVersionMarkerByUserId(@Param("userId") Long userId);
+
+    @Query("""
+            select new com.example.bankcards.dto.VersionMarker(count(t), coalesce(max(t.id), 0L), 0L)
+            from Transfer t
+            where t.fromCard.id = :cardId or t.toCard.id = :cardId
+            """)
+    VersionMarker findVersionMarkerByCardId(@Param("cardId") Long cardId);
 }
@@ -0,0 +1,102 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.user.UserImportRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Массовая вставка пользователей для импорта в обход JPA: одна пачка - один INSERT ... SELECT FROM unnest(...).
+ * Конфликты по email/username пропускаются ({@code ON CONFLICT DO NOTHING}), вставленные строки возвращаются через RETURNING.
+ */
+@Repository
+public class UserImportRepository {
+
+    // Совпадает с allocationSize у User: значение последовательности - верхняя граница выделенного блока ID
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param hashes BCrypt-хеши паролей в том же порядке, что и {@code rows}
+     * @return email вставленных пользователей
+     */
+    public Set<String> insertIgnoringConflicts(List<UserImportRow> rows, List<String> hashes) {
+        if (rows.isEmpty()) {
+            return Set.of();
+        }
+        List<Long> ids = allocateIds(rows.size());
+        Object[] idArray = ids.toArray();
+        Object[] emails = new Object[rows.size()];
+        Object[] usernames = new Object[rows.size()];
+        Object[] roles = new Object[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            UserImportRow row = rows.get(i);
+            emails[i] = row.email();
+            usernames[i] = row.username();
+            roles[i] = row.role().name();
+        }
+        Object[] passwords = hashes.toArray();
+
+        return new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("""
+                    INSERT INTO users (id, email, username, password, role)
+                    SELECT t.id, t.email, t.username, t.password, CAST(t.role AS user_role)
+                    FROM unnest(?, ?, ?, ?, ?) AS t(id, email, username, password, role)
+                    ON CONFLICT DO NOTHING
+                    RETURNING email
+                    """);
+            ps.setArray(1, connection.createArrayOf("bigint", idArray));
+            ps.setArray(2, textArray(connection, emails));
+            ps.setArray(3, textArray(connection, usernames));
+            ps.setArray(4, textArray(connection, passwords));
+            ps.setArray(5, textArray(connection, roles));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+    }
+
+    public Set<String> findExistingEmails(List<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        Object[] emailArray = emails.toArray();
+        return new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT email FROM users WHERE email = ANY(?)");
+            ps.setArray(1, textArray(connection, emailArray));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+    }
+
+    // Один nextval на каждые ID_ALLOCATION_SIZE строк, как делает pooled-оптимизатор Hibernate
+    private List<Long> allocateIds(int count) {
+        int blocks = (count + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        List<Long> upperBounds = jdbcTemplate.queryForList(
+                "SELECT nextval('users_id_seq') FROM generate_series(1, ?)", Long.class, blocks);
+        List<Long> ids = new ArrayList<>(count);
+        for (Long upper : upperBounds) {
+            for (long id = Math.max(1, upper - ID_ALLOCATION_SIZE + 1); id <= upper && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        if (ids.size() < count) {
+            throw new IllegalStateException("Could not allocate user IDs");
+        }
+        return ids;
+    }
+
+    private static Array textArray(Connection connection, Object[] values) throws SQLException {
+        return connection.createArrayOf("text", values);
+    }
+}
@@ -1,9 +1,18 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.user.UserView;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +21,27 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    Slice<User> findAllBy(Pageable pageable);
+
+    // ILIKE по подстроке обслуживается trigram GIN-индексами (db.changelog-013); keyset по ID
+    @Query("""
+            select new com.example.bankcards.dto.user.UserView(u.id, u.username, u.email, u.role)
+            from User u
+            where (u.username ilike :pattern escape '\\' or u.email ilike :pattern escape '\\')
+              and u.id > :afterId
+            order by u.id
+            """)
+    List<UserView> searchViews(@Param("pattern") String pattern, @Param("afterId") long afterId, Limit limit);
+
+    // Мягкое удаление: после него пользователь не виден запросам (@SQLRestriction на User)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE users SET deleted_at = now() WHERE id = :id AND deleted_at IS NULL", nativeQuery = true)
+    int softDelete(@Param("id") Long id);
+
+    // Удаляет только мягко удалённую строку; refresh-токены удаляются каскадно
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeSoftDeleted(@Param("id") Long id);
 }
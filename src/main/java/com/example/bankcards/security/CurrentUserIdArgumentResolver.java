@@ -1,6 +1,6 @@
 package com.example.bankcards.security;
 
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.bankcards.exception.ForbiddenException;
 import org.springframework.core.MethodParameter;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -10,11 +10,6 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 
 @Component
 public class CurrentUserIdArgumentResolver implements HandlerMethodArgumentResolver {
-    private final JwtTokenProvider jwtTokenProvider;
-
-    public CurrentUserIdArgumentResolver(JwtTokenProvider jwtTokenProvider) {
-        this.jwtTokenProvider = jwtTokenProvider;
-    }
 
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
@@ -24,8 +19,8 @@ public class CurrentUserIdArgumentResolver implements HandlerMethodArgumentResol
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
                                   NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
-        HttpServletRequest request = (HttpServletRequest) webRequest.getNativeRequest();
-        String token = jwtTokenProvider.resolveToken(request);
-        return jwtTokenProvider.getUserIdFromToken(token);
+        return JwtPrincipal.current()
+                .map(JwtPrincipal::userId)
+                .orElseThrow(() -> new ForbiddenException("User is not authenticated"));
     }
 }
@@ -0,0 +1,33 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Кодировщик для логина: сама проверка и перехеширование BCrypt идут в {@link PasswordHashingExecutor},
+ * а поиск пользователя и запись нового хеша остаются в потоке запроса и не занимают потоки пула.
+ */
+public class HashingPoolPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public HashingPoolPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.call("encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.call("login", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
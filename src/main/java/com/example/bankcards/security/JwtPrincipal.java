@@ -0,0 +1,27 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Optional;
+
+// Данные пользователя из проверенного JWT; кладётся в Authentication один раз в JwtTokenFilter.
+// tokenId (jti) и issuedAt нужны для проверки отзыва токена
+public record JwtPrincipal(Long userId, String username, String role, String tokenId, Instant issuedAt)
+        implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public static Optional<JwtPrincipal> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return Optional.of(principal);
+        }
+        return Optional.empty();
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.bankcards.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -12,89 +19,145 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenProvider {
 
-    @Value("${security.jwt.secret}")
-    private String jwtSecret;
-
-    @Value("${security.jwt.expiration-ms}")
-    private int jwtExpirationMs;
-
-    private Key key() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private final int jwtExpirationMs;
+    // Ключ и парсер потокобезопасны и создаются один раз
+    private final Key key;
+    private final JwtParser parser;
+    private final boolean cacheEnabled;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Timer verificationTimer;
+
+    public JwtTokenProvider(@Value("${security.jwt.secret}") String jwtSecret,
+                            @Value("${security.jwt.expiration-ms}") int jwtExpirationMs,
+                            @Value("${security.jwt.cache.enabled:true}") boolean cacheEnabled,
+                            @Value("${security.jwt.cache.max-size:100000}") long cacheMaxSize,
+                            MeterRegistry meterRegistry) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.cacheEnabled = cacheEnabled;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.verificationTimer = meterRegistry.timer("jwt.verification");
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
     }
 
     public String generateToken(Authentication authentication) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
         String role = authentication.getAuthorities().stream()
                 .findFirst()
                 .map(Object::toString)
                 .orElse("ROLE_USER");
+        return generateToken(userDetails.getId(), authentication.getName(), role);
+    }
+
+    // Выпуск access-токена без повторной аутентификации - при обмене refresh-токена
+    public String generateToken(Long userId, String subject, String role) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
         return Jwts.builder()
-                .setSubject(authentication.getName())
-                .claim("userId", userDetails.getId())
+                .setId(UUID.randomUUID().toString())
+                .setSubject(subject)
+                .claim("userId", userId)
                 .claim("role", role)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(key(), SignatureAlgorithm.HS512)
+                .signWith(key, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.get("userId", Long.class);
-    }
-
-    public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    /**
+     * Проверяет подпись и срок действия токена и собирает из его claims {@link Authentication}
+     * с {@link JwtPrincipal} - за один разбор токена.
+     * <p>
+     * Проверенные токены кешируются по SHA-256 до их собственного {@code exp}. В кеш попадают только
+     * токены с верной подписью, поэтому поддельные токены не вытесняют настоящие и каждый раз проверяются заново.
+     */
+    public Authentication getAuthentication(String token) {
+        if (!cacheEnabled) {
+            return toAuthentication(verify(token).principal());
+        }
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached == null) {
+            cached = verify(token);
+            if (cached.expiresAtMillis() > System.currentTimeMillis()) {
+                verifiedTokens.put(digest, cached);
+            }
+        }
+        return toAuthentication(cached.principal());
     }
 
-    public boolean validateToken(String token) {
+    private VerifiedToken verify(String token) {
+        long start = System.nanoTime();
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            JwtPrincipal principal = new JwtPrincipal(
+                    claims.get("userId", Long.class), claims.getSubject(), claims.get("role", String.class),
+                    claims.getId(), claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant());
+            long expiresAt = claims.getExpiration() == null ? 0 : claims.getExpiration().getTime();
+            return new VerifiedToken(principal, expiresAt);
         } catch (JwtException | IllegalArgumentException ex) {
             throw new JwtException("JWT token is invalid or expired: " + ex.getMessage(), ex);
+        } finally {
+            verificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
-    public Authentication getAuthentication(String token) {
-        String username = getUsernameFromToken(token);
-        String role = getRoleFromToken(token);
-
+    private Authentication toAuthentication(JwtPrincipal principal) {
         return new UsernamePasswordAuthenticationToken(
-                username,
+                principal,
                 null,
-                List.of(new SimpleGrantedAuthority(role))
+                List.of(new SimpleGrantedAuthority(principal.role()))
         );
     }
 
-    public String getRoleFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role", String.class);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedToken(JwtPrincipal principal, long expiresAtMillis) {
+    }
+
+    // Запись живёт ровно до exp токена
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
     public String resolveToken(HttpServletRequest request) {
@@ -1,5 +1,6 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.exception.ForbiddenException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.core.MethodParameter;
 import org.springframework.security.core.Authentication;
@@ -12,12 +13,6 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 
 @Component
 public class OptionalUserIdArgumentResolver implements HandlerMethodArgumentResolver {
-    private final JwtTokenProvider jwtTokenProvider;
-
-    public OptionalUserIdArgumentResolver(JwtTokenProvider jwtTokenProvider) {
-        this.jwtTokenProvider = jwtTokenProvider;
-    }
-
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
         return parameter.hasParameterAnnotation(OptionalUserId.class);
@@ -44,7 +39,8 @@ public class OptionalUserIdArgumentResolver implements HandlerMethodArgumentReso
             }
         }
 
-        String token = jwtTokenProvider.resolveToken(request);
-        return jwtTokenProvider.getUserIdFromToken(token);
+        return JwtPrincipal.current()
+                .map(JwtPrincipal::userId)
+                .orElseThrow(() -> new ForbiddenException("User is not authenticated"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Отдельный ограниченный пул для BCrypt: число одновременных хеширований и проверок паролей ограничено
+ * числом ядер, и всплеск логинов не забирает CPU у остальных запросов. В пул отправляется только
+ * сам BCrypt - запросы в БД вокруг него идут в вызывающем потоке.
+ * <p>
+ * Очередь ограничена; если она заполнена, задача сразу отклоняется с 503 и {@code Retry-After},
+ * а не ждёт, пока всплеск логинов рассосётся. Время операции (с ожиданием в очереди) пишется
+ * в таймер {@code password.hashing} с тегом операции, загрузка пула - в метрики {@code executor.*}.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+    private final long retryAfterSeconds;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${security.password.hashing.threads:0}") int threads,
+                                   @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${security.password.hashing.retry-after-seconds:1}") long retryAfterSeconds) {
+        // 0 - по числу ядер: BCrypt упирается в CPU, больше потоков не ускорит
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.meterRegistry = meterRegistry;
+        this.rejected = meterRegistry.counter("password.hashing.rejected");
+        this.retryAfterSeconds = retryAfterSeconds;
+        new ExecutorServiceMetrics(executor, "password-hashing", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return CompletableFuture.supplyAsync(task, executor)
+                    .whenComplete((result, ex) -> sample.stop(timer(operation, ex == null ? "success" : "error")));
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Password hashing is overloaded, retry later", retryAfterSeconds);
+        }
+    }
+
+    // Для вызывающих, которым нужен результат сразу: поток ждёт, но число одновременных хеширований ограничено
+    public <T> T call(String operation, Supplier<T> task) {
+        try {
+            return submit(operation, task).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("password.hashing")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
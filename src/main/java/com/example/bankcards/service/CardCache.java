@@ -0,0 +1,157 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.VersionMarker;
+import com.example.bankcards.dto.card.CardView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Кеш чтения карт: по ID карты и по ID пользователя (страницы его карт и маркер версии для ETag). Хранятся только проекции
+ * {@link CardView}, а не сущности: в кеше нет владельца с хешем пароля и общих между потоками изменяемых объектов.
+ * Записи вытесняются по TTL и размеру. Инвалидация выполняется сразу и повторно после коммита
+ * текущей транзакции, а каждая инвалидация сдвигает поколение кеша: загрузка, во время которой оно
+ * сдвинулось, не оставляет результат в кеше, и параллельное чтение не вернёт в кеш старое состояние.
+ */
+@Component
+public class CardCache {
+
+    // Сколько разных страниц (размер/сортировка) одного пользователя держим в кеше
+    private static final int MAX_PAGES_PER_USER = 16;
+
+    private final Cache<Long, CardView> byId;
+    private final Cache<Long, UserCards> byUser;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CardCache(MeterRegistry meterRegistry,
+                     @Value("${app.card.cache.max-size:10000}") long maxSize,
+                     @Value("${app.card.cache.ttl:PT1M}") Duration ttl) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byUser = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "cards.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byUser, "cards.by-user");
+    }
+
+    // Загрузчик может вернуть null - такой результат не кешируется; загрузка вне Cache.get, см. UserCache.getById
+    public CardView getCard(Long cardId, Function<Long, CardView> loader) {
+        CardView cached = byId.getIfPresent(cardId);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        CardView loaded = loader.apply(cardId);
+        if (loaded != null) {
+            putIfCurrent(byId, cardId, loaded, loadGeneration);
+        }
+        return loaded;
+    }
+
+    // Запись пользователя берётся до загрузки: если её вытеснят во время загрузки, результат
+    // попадёт в уже удалённую запись и не переживёт инвалидацию
+    public Page<CardView> getUserCards(Long userId, Pageable pageable, Supplier<Page<CardView>> loader) {
+        Map<Pageable, Page<CardView>> pages = byUser.get(userId, id -> new UserCards()).pages;
+        Page<CardView> cached = pages.get(pageable);
+        if (cached != null) {
+            return cached;
+        }
+        Page<CardView> loaded = loader.get();
+        if (pages.size() < MAX_PAGES_PER_USER) {
+            pages.put(pageable, loaded);
+        }
+        return loaded;
+    }
+
+    public VersionMarker getUserCardsVersion(Long userId, Supplier<VersionMarker> loader) {
+        UserCards cards = byUser.get(userId, id -> new UserCards());
+        VersionMarker cached = cards.version;
+        if (cached != null) {
+            return cached;
+        }
+        VersionMarker loaded = loader.get();
+        cards.version = loaded;
+        return loaded;
+    }
+
+    public void evictCard(Long cardId, Long userId) {
+        evictNowAndAfterCommit(() -> {
+            byId.invalidate(cardId);
+            byUser.invalidate(userId);
+        });
+    }
+
+    public void evictUser(Long userId) {
+        evictNowAndAfterCommit(() -> byUser.invalidate(userId));
+    }
+
+    public void evictUsers(Collection<Long> userIds) {
+        evictNowAndAfterCommit(() -> byUser.invalidateAll(userIds));
+    }
+
+    public void evictAllUserCards(Long userId) {
+        evictNowAndAfterCommit(() -> {
+            byUser.invalidate(userId);
+            byId.asMap().values().removeIf(card -> userId.equals(card.userId()));
+        });
+    }
+
+    public void evictAll() {
+        evictNowAndAfterCommit(() -> {
+            byId.invalidateAll();
+            byUser.invalidateAll();
+        });
+    }
+
+    // Загрузка могла прочитать данные до коммита, а инвалидация после коммита - пройти, пока она шла.
+    // Поэтому значение сначала кладётся, а потом сверяется поколение: если инвалидация была, значение
+    // убирается; если она ещё впереди, то уберёт его сама
+    private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, long loadGeneration) {
+        cache.put(key, value);
+        if (generation.get() != loadGeneration) {
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        Runnable invalidate = () -> {
+            generation.incrementAndGet();
+            eviction.run();
+        };
+        invalidate.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate.run();
+                }
+            });
+        }
+    }
+
+    private static final class UserCards {
+        private final Map<Pageable, Page<CardView>> pages = new ConcurrentHashMap<>();
+        private volatile VersionMarker version;
+    }
+}
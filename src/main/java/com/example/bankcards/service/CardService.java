@@ -1,35 +1,107 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.dto.VersionMarker;
+import com.example.bankcards.dto.card.BulkCreateCardsResponse;
+import com.example.bankcards.dto.card.CardSearchCursor;
+import com.example.bankcards.dto.card.CardSearchFilter;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSpecifications;
+import com.example.bankcards.repository.TableStatsRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardCryptoUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
 
 @Service
 public class CardService {
 
+    private static final Logger log = LoggerFactory.getLogger(CardService.class);
+    private static final String EXPIRY_SWEEP_JOB = "card-expiry-sweep";
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final CardCryptoUtil cryptoUtil;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+    private final JobLeaseService jobLeaseService;
+    private final CardCache cardCache;
+    private final TableStatsRepository tableStatsRepository;
+    private final Counter expiredCardsCounter;
+    private final Counter expirySweepChunksCounter;
+    private final Timer expirySweepTimer;
+
+    @Value("${app.card.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    @Value("${app.card.bulk.max-cards:100000}")
+    private int bulkMaxCards;
+
+    @Value("${app.card.expiry-sweep.enabled:true}")
+    private boolean expirySweepEnabled;
+
+    @Value("${app.card.expiry-sweep.chunk-size:1000}")
+    private int expirySweepChunkSize;
+
+    @Value("${app.card.expiry-sweep.pause-ms:100}")
+    private long expirySweepPauseMs;
+
+    @Value("${app.card.search.max-page-size:100}")
+    private int searchMaxPageSize;
 
     public CardService(CardRepository cardRepository,
                        UserRepository userRepository,
-                       CardCryptoUtil cryptoUtil) {
+                       CardCryptoUtil cryptoUtil,
+                       EntityManager entityManager,
+                       MeterRegistry meterRegistry,
+                       JobLeaseService jobLeaseService,
+                       CardCache cardCache,
+                       TableStatsRepository tableStatsRepository) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
         this.cryptoUtil = cryptoUtil;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+        this.jobLeaseService = jobLeaseService;
+        this.cardCache = cardCache;
+        this.tableStatsRepository = tableStatsRepository;
+        this.expiredCardsCounter = meterRegistry.counter("cards.expiry.sweep.expired");
+        this.expirySweepChunksCounter = meterRegistry.counter("cards.expiry.sweep.chunks");
+        this.expirySweepTimer = meterRegistry.timer("cards.expiry.sweep.duration");
     }
 
     public Card createCardForUser(Long userId) {
@@ -46,35 +118,132 @@ public class CardService {
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(BigDecimal.ZERO);
         card.setUser(user);
-        card.setExpiryDate(LocalDate.now().plusYears(3).withDayOfMonth(1).plusMonths(1).minusDays(1));
+        card.setExpiryDate(newCardExpiryDate());
+
+        Card saved = cardRepository.save(card);
+        cardCache.evictUser(userId);
+        return saved;
+    }
+
+    @Transactional
+    public BulkCreateCardsResponse createCardsForUsers(List<Long> userIds, int countPerUser) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("User IDs are required");
+        }
+        if (countPerUser <= 0) {
+            throw new IllegalArgumentException("Count per user must be positive");
+        }
+
+        Set<Long> distinctIds = new LinkedHashSet<>(userIds);
+        if ((long) distinctIds.size() * countPerUser > bulkMaxCards) {
+            throw new IllegalArgumentException("Too many cards requested, max is " + bulkMaxCards);
+        }
 
-        return cardRepository.save(card);
+        List<User> users = userRepository.findAllById(distinctIds);
+        if (users.size() != distinctIds.size()) {
+            Set<Long> missing = new LinkedHashSet<>(distinctIds);
+            users.forEach(u -> missing.remove(u.getId()));
+            throw new NotFoundException("Users not found: " + missing);
+        }
+
+        LocalDate expiryDate = newCardExpiryDate();
+        int chunkSize = Math.max(bulkChunkSize, 1);
+        List<Card> chunk = new ArrayList<>(chunkSize);
+        int created = 0;
+
+        for (User user : users) {
+            for (int i = 0; i < countPerUser; i++) {
+                chunk.add(new Card()
+                        .setStatus(CardStatus.ACTIVE)
+                        .setBalance(BigDecimal.ZERO)
+                        .setUser(user)
+                        .setExpiryDate(expiryDate));
+                if (chunk.size() == chunkSize) {
+                    created += saveChunk(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += saveChunk(chunk);
+        }
+        cardCache.evictUsers(distinctIds);
+
+        return new BulkCreateCardsResponse(users.size(), created);
+    }
+
+    // Номера для всей пачки проверяются одним запросом, затем пачка уходит batch-insert'ом
+    // и контекст очищается, чтобы не держать в памяти все созданные карты.
+    private int saveChunk(List<Card> chunk) {
+        Set<String> taken = new HashSet<>();
+        List<Card> pending = chunk;
+        while (!pending.isEmpty()) {
+            Map<String, Card> candidates = new HashMap<>();
+            List<Card> retry = new ArrayList<>();
+            for (Card card : pending) {
+                String number = cryptoUtil.encrypt(generateCardNumber());
+                if (taken.contains(number) || candidates.putIfAbsent(number, card) != null) {
+                    retry.add(card);
+                }
+            }
+
+            Set<String> existing = new HashSet<>(cardRepository.findExistingNumbers(candidates.keySet()));
+            candidates.forEach((number, card) -> {
+                if (existing.contains(number)) {
+                    retry.add(card);
+                } else {
+                    card.setNumber(number);
+                    taken.add(number);
+                }
+            });
+            pending = retry;
+        }
+
+        cardRepository.saveAll(chunk);
+        entityManager.flush();
+        entityManager.clear();
+        return chunk.size();
+    }
+
+    private LocalDate newCardExpiryDate() {
+        return LocalDate.now().plusYears(3).withDayOfMonth(1).plusMonths(1).minusDays(1);
     }
 
     private String generateCardNumber() {
-        Random rnd = new Random();
-        StringBuilder sb = new StringBuilder();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        StringBuilder sb = new StringBuilder(16);
         for (int i = 0; i < 16; i++) {
             sb.append(rnd.nextInt(10));
         }
         return sb.toString();
     }
 
-    public Page<Card> findCardsByUserId(Long userId, Pageable pageable) {
-        return cardRepository.findByUserId(userId, pageable);
+    public Page<CardView> findCardsByUserId(Long userId, Pageable pageable) {
+        return cardCache.getUserCards(userId, pageable, () -> cardRepository.findViewsByUserId(userId, pageable));
+    }
+
+    // Маркер кешируется вместе со страницами и вытесняется теми же записями
+    public VersionMarker getCardsVersion(Long userId) {
+        return cardCache.getUserCardsVersion(userId, () -> cardRepository.findVersionMarkerByUserId(userId));
     }
 
-    public Page<Card> findCardsByUserIdAndNumber(Long userId, String partialNumber, Pageable pageable) {
-        return cardRepository.findByUserIdAndNumberContaining(userId, partialNumber, pageable);
+    @Transactional(readOnly = true)
+    public Page<CardView> findCardsByUserIdAndNumber(Long userId, String partialNumber, Pageable pageable) {
+        return cardRepository.findViewsByUserIdAndNumberContaining(userId, partialNumber, pageable);
     }
 
-    public Card getCardByIdForUser(Long cardId, Long userId) {
-        return cardRepository.findByIdAndUserId(cardId, userId)
-                .orElseThrow(() -> new NotFoundException("Card not found or access denied"));
+    public CardView getCardByIdForUser(Long cardId, Long userId) {
+        CardView card = cardCache.getCard(cardId, id -> cardRepository.findViewByIdAndUserId(id, userId).orElse(null));
+        if (card == null || !card.userId().equals(userId)) {
+            throw new NotFoundException("Card not found or access denied");
+        }
+        return card;
     }
 
     public void deleteCard(Long id) {
-        cardRepository.deleteById(id);
+        Optional<Long> ownerId = cardRepository.findUserIdById(id);
+        cardRepository.tombstoneCard(id);
+        ownerId.ifPresent(userId -> cardCache.evictCard(id, userId));
     }
 
     public Card requestBlockCard(Long userId, Long cardId) {
@@ -86,7 +255,9 @@ public class CardService {
         }
 
         card.setBlockRequested(true);
-        return cardRepository.save(card);
+        Card saved = cardRepository.save(card);
+        cardCache.evictCard(cardId, userId);
+        return saved;
     }
 
     public Card approveBlockCard(Long cardId) {
@@ -99,16 +270,96 @@ public class CardService {
 
         card.setStatus(CardStatus.BLOCKED);
         card.setBlockRequested(false);
-        return cardRepository.save(card);
+        Card saved = cardRepository.save(card);
+        cardCache.evictCard(cardId, card.getUser().getId());
+        return saved;
+    }
+
+    public long approveAllBlockRequests(LongConsumer progress) {
+        long total = updateInChunks(cardRepository::approveBlockRequestsBatch, progress);
+        cardCache.evictAll();
+        return total;
+    }
+
+    public long blockAllUserCards(Long userId, LongConsumer progress) {
+        long total = updateInChunks(limit -> cardRepository.blockUserCardsBatch(userId, limit), progress);
+        cardCache.evictAllUserCards(userId);
+        return total;
+    }
+
+    public long blockCards(List<Long> cardIds, LongConsumer progress) {
+        if (cardIds == null || cardIds.isEmpty()) {
+            throw new IllegalArgumentException("Card IDs are required");
+        }
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(cardIds));
+        int chunkSize = Math.max(bulkChunkSize, 1);
+        long total = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            total += cardRepository.blockCardsByIds(chunk);
+            progress.accept(total);
+        }
+        cardCache.evictAll();
+        return total;
+    }
+
+    // Каждая пачка - отдельный UPDATE в своей транзакции; повторяем, пока пачка заполняется целиком
+    private long updateInChunks(IntUnaryOperator chunkUpdate, LongConsumer progress) {
+        int chunkSize = Math.max(bulkChunkSize, 1);
+        long total = 0;
+        int updated;
+        do {
+            updated = chunkUpdate.applyAsInt(chunkSize);
+            total += updated;
+            progress.accept(total);
+        } while (updated == chunkSize);
+        return total;
     }
 
     public String getMaskedNumber(Card card) {
-        String plain = cryptoUtil.decrypt(card.getNumber());
+        return getMaskedNumber(card.getNumber());
+    }
+
+    public String getMaskedNumber(String encryptedNumber) {
+        String plain = cryptoUtil.decrypt(encryptedNumber);
         return CardCryptoUtil.mask(plain);
     }
 
-    public Page<Card> getAllCards(Pageable pageable) {
-        return cardRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public PageResponse<CardView> getAllCards(Pageable pageable, CountMode count) {
+        return switch (count) {
+            case EXACT -> PageResponse.exact(cardRepository.findAllViews(pageable));
+            case NONE -> PageResponse.uncounted(cardRepository.findAllViewsSlice(pageable));
+            case ESTIMATE -> tableStatsRepository.estimateRowCount("cards")
+                    .map(estimate -> PageResponse.estimated(cardRepository.findAllViewsSlice(pageable), estimate))
+                    .orElseGet(() -> PageResponse.exact(cardRepository.findAllViews(pageable)));
+        };
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<CardView> searchCards(CardSearchFilter filter, CardSortKey sort, Sort.Direction direction,
+                                            String cursor, int size) {
+        if (size < 1 || size > searchMaxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + searchMaxPageSize);
+        }
+        CardSearchCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = CardSearchCursor.decode(cursor);
+            if (after.sort() != sort || after.direction() != direction) {
+                throw new IllegalArgumentException("Cursor does not match requested sort");
+            }
+        }
+
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<CardView> found = cardRepository.searchViews(
+                CardSpecifications.matching(filter), sort, direction, after, size + 1);
+        if (found.size() <= size) {
+            return new KeysetPage<>(found, null, false);
+        }
+        List<CardView> content = found.subList(0, size);
+        String nextCursor = CardSearchCursor.after(content.get(size - 1), sort, direction).encode();
+        return new KeysetPage<>(List.copyOf(content), nextCursor, true);
     }
 
     public Card depositToCard(Long userId, Long cardId, BigDecimal amount) {
@@ -124,17 +375,54 @@ public class CardService {
         }
 
         card.setBalance(card.getBalance().add(amount));
-        return cardRepository.save(card);
+        Card saved = cardRepository.save(card);
+        cardCache.evictCard(cardId, userId);
+        return saved;
     }
 
     @Scheduled(cron = "0 0 0 * * ?")
     public void checkAndUpdateExpiredCards() {
+        if (!expirySweepEnabled) {
+            return;
+        }
+        jobLeaseService.runExclusively(EXPIRY_SWEEP_JOB, this::expireCards);
+    }
+
+    // Карты переводятся в EXPIRED пачками по expirySweepChunkSize: каждая пачка - отдельный
+    // короткий UPDATE в своей транзакции, между пачками пауза, чтобы не мешать обычной нагрузке.
+    // Если узел потерял лидерство, обход прерывается после текущей пачки.
+    private void expireCards(BooleanSupplier leaseHeld) {
         LocalDate today = LocalDate.now();
-        List<Card> expiredCards = cardRepository.findByStatusAndExpiryDateBefore(CardStatus.ACTIVE, today);
+        int chunkSize = Math.max(expirySweepChunkSize, 1);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = 0;
+
+        int updated;
+        do {
+            updated = cardRepository.expireActiveCardsBatch(today, chunkSize);
+            total += updated;
+            expiredCardsCounter.increment(updated);
+            expirySweepChunksCounter.increment();
+            if (updated > 0) {
+                cardCache.evictAll();
+            }
+            log.debug("Expiry sweep: {} cards expired in chunk, {} total", updated, total);
+        } while (updated == chunkSize && leaseHeld.getAsBoolean() && pauseBetweenChunks());
 
-        for (Card card : expiredCards) {
-            card.setStatus(CardStatus.EXPIRED);
-            cardRepository.save(card);
+        sample.stop(expirySweepTimer);
+        log.info("Expiry sweep finished: {} cards expired", total);
+    }
+
+    private boolean pauseBetweenChunks() {
+        if (expirySweepPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(expirySweepPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 }
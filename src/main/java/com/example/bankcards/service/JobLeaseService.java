@@ -0,0 +1,224 @@
+package com.example.bankcards.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Гарантирует, что задача по расписанию выполняется только на одном узле кластера.
+ * <p>
+ * Лидерство держится сессионной блокировкой {@code pg_try_advisory_lock} на соединении лидера:
+ * если узел-лидер падает, Postgres закрывает его сессию и снимает блокировку, и её забирает
+ * один из ожидающих узлов; соединение пула они берут только на время попытки. Пока задача выполняется,
+ * лидер раз в {@code heartbeat-ms} пишет heartbeat в {@code job_locks}; если соединение потеряно, задача получает сигнал остановиться.
+ * Успешный запуск фиксируется в {@code job_locks.completed_at}, чтобы ожидающие узлы не повторяли его.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobLeaseService.class);
+
+    // Первый ключ advisory lock - пространство имён задач, второй - хеш имени задачи
+    private static final int LOCK_NAMESPACE = 0x4A4F4253;
+
+    private final DataSource dataSource;
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "job-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.jobs.lease.node-id:${HOSTNAME:local}}")
+    private String nodeId;
+
+    @Value("${app.jobs.lease.heartbeat-ms:2000}")
+    private long heartbeatMs;
+
+    @Value("${app.jobs.lease.retry-ms:2000}")
+    private long retryMs;
+
+    @Value("${app.jobs.lease.max-wait-ms:600000}")
+    private long maxWaitMs;
+
+    @Value("${app.jobs.lease.completed-grace-ms:60000}")
+    private long completedGraceMs;
+
+    public JobLeaseService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Выполняет задачу, если этому узлу удалось стать лидером для {@code jobName}.
+     * Узлы, не получившие блокировку, ждут до {@code max-wait-ms} и подхватывают задачу,
+     * если лидер упал, не завершив её.
+     *
+     * @param job задача; аргумент сообщает, удерживается ли ещё блокировка
+     * @return {@code true}, если задача была выполнена на этом узле
+     */
+    public boolean runExclusively(String jobName, Consumer<BooleanSupplier> job) {
+        try {
+            Timestamp firedAt = null;
+            long deadline = System.currentTimeMillis() + maxWaitMs;
+
+            // Соединение берётся на каждую попытку: ожидающий узел не занимает соединение пула между попытками
+            while (true) {
+                try (Connection connection = dataSource.getConnection()) {
+                    connection.setAutoCommit(true);
+                    if (firedAt == null) {
+                        firedAt = currentTimestamp(connection);
+                    }
+                    if (tryLock(connection, jobName)) {
+                        try {
+                            return runLocked(connection, jobName, firedAt, job);
+                        } finally {
+                            unlock(connection, jobName);
+                        }
+                    }
+                }
+                if (System.currentTimeMillis() >= deadline || !sleep(retryMs)) {
+                    log.debug("Job {} is held by another node, skipping", jobName);
+                    return false;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Job lease failed for " + jobName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private boolean runLocked(Connection connection, String jobName, Timestamp firedAt, Consumer<BooleanSupplier> job)
+            throws SQLException {
+        Timestamp threshold = new Timestamp(firedAt.getTime() - completedGraceMs);
+        if (completedSince(connection, jobName, threshold)) {
+            log.debug("Job {} already completed by another node", jobName);
+            return false;
+        }
+        runWithHeartbeat(connection, jobName, job);
+        return true;
+    }
+
+    private void runWithHeartbeat(Connection connection, String jobName, Consumer<BooleanSupplier> job)
+            throws SQLException {
+        markLocked(connection, jobName);
+
+        AtomicBoolean held = new AtomicBoolean(true);
+        ScheduledFuture<?> heartbeat = heartbeatExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat(connection, jobName);
+            } catch (SQLException e) {
+                log.warn("Lost lease for job {}: {}", jobName, e.getMessage());
+                held.set(false);
+            }
+        }, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+
+        try {
+            log.info("Job {} started on node {}", jobName, nodeId);
+            job.accept(held::get);
+        } finally {
+            heartbeat.cancel(false);
+        }
+
+        if (held.get()) {
+            markCompleted(connection, jobName);
+        }
+    }
+
+    private boolean tryLock(Connection connection, String jobName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, jobName.hashCode());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void unlock(Connection connection, String jobName) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, jobName.hashCode());
+            ps.execute();
+        } catch (SQLException e) {
+            // Соединение уже потеряно - блокировка снята вместе с сессией
+            log.warn("Failed to release lease for job {}: {}", jobName, e.getMessage());
+        }
+    }
+
+    private Timestamp currentTimestamp(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT clock_timestamp()");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    private boolean completedSince(Connection connection, String jobName, Timestamp threshold) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT 1 FROM job_locks WHERE job_name = ? AND completed_at >= ?")) {
+            ps.setString(1, jobName);
+            ps.setTimestamp(2, threshold);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private void markLocked(Connection connection, String jobName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                INSERT INTO job_locks (job_name, locked_by, locked_at, heartbeat_at)
+                VALUES (?, ?, clock_timestamp(), clock_timestamp())
+                ON CONFLICT (job_name) DO UPDATE
+                SET locked_by = EXCLUDED.locked_by, locked_at = EXCLUDED.locked_at, heartbeat_at = EXCLUDED.heartbeat_at
+                """)) {
+            ps.setString(1, jobName);
+            ps.setString(2, nodeId);
+            ps.executeUpdate();
+        }
+    }
+
+    private void heartbeat(Connection connection, String jobName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE job_locks SET heartbeat_at = clock_timestamp() WHERE job_name = ?")) {
+            ps.setString(1, jobName);
+            ps.executeUpdate();
+        }
+    }
+
+    private void markCompleted(Connection connection, String jobName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE job_locks SET completed_at = clock_timestamp() WHERE job_name = ?")) {
+            ps.setString(1, jobName);
+            ps.executeUpdate();
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+}
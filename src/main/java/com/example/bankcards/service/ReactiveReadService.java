@@ -0,0 +1,54 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.ReactiveReadRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Чтение карт и истории переводов без блокирующего JDBC; запись - в CardService и TransferService
+@Service
+public class ReactiveReadService {
+
+    private final ReactiveReadRepository reactiveReadRepository;
+
+    @Value("${app.reactive.max-page-size:1000}")
+    private int maxPageSize;
+
+    public ReactiveReadService(ReactiveReadRepository reactiveReadRepository) {
+        this.reactiveReadRepository = reactiveReadRepository;
+    }
+
+    public Flux<CardResponse> getUserCards(Long userId, String number, Long afterId, int size) {
+        checkSize(size);
+        return reactiveReadRepository.findCardsByUserId(userId, number, afterId == null ? 0 : afterId, size);
+    }
+
+    public Mono<CardResponse> getCard(Long cardId, Long userId) {
+        return reactiveReadRepository.findCardByIdAndUserId(cardId, userId)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Card not found or access denied")));
+    }
+
+    public Flux<TransferResponse> getTransfersByUser(Long userId, Long beforeId, int size) {
+        checkSize(size);
+        return reactiveReadRepository.findTransfersByUserId(userId, beforeIdOrMax(beforeId), size);
+    }
+
+    public Flux<TransferResponse> getTransfersByCard(Long cardId, Long userId, Long beforeId, int size) {
+        checkSize(size);
+        return reactiveReadRepository.findTransfersByCardId(cardId, userId, beforeIdOrMax(beforeId), size);
+    }
+
+    private void checkSize(int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+    }
+
+    private static long beforeIdOrMax(Long beforeId) {
+        return beforeId == null ? Long.MAX_VALUE : beforeId;
+    }
+}
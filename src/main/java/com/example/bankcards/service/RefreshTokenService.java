@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.auth.AuthResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.security.JwtTokenProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Выпуск и ротация refresh-токенов.
+ * <p>
+ * Refresh-токен - случайные 256 бит; в БД хранится только его SHA-256. Каждый обмен помечает токен
+ * использованным и выдаёт новый в той же цепочке. Повторное предъявление уже использованного токена
+ * означает его утечку - тогда отзывается вся цепочка.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final long refreshExpirationMs;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               JwtTokenProvider jwtTokenProvider,
+                               @Value("${security.jwt.refresh-expiration-ms}") long refreshExpirationMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    @Transactional
+    public AuthResponse issueTokens(Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        String accessToken = jwtTokenProvider.generateToken(authentication);
+        String refreshToken = createRefreshToken(userDetails.getId(), UUID.randomUUID().toString());
+        return new AuthResponse(accessToken, refreshToken);
+    }
+
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public AuthResponse refresh(String presentedToken) {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken stored = refreshTokenRepository.findByTokenHashForUpdate(hash(presentedToken))
+                .orElseThrow(() -> new UnauthorizedException("Refresh token is invalid"));
+
+        if (stored.getUsedAt() != null || stored.getRevokedAt() != null) {
+            refreshTokenRepository.revokeFamily(stored.getFamilyId(), now);
+            throw new UnauthorizedException("Refresh token has already been used");
+        }
+        if (stored.getExpiresAt().isBefore(now)) {
+            throw new UnauthorizedException("Refresh token has expired");
+        }
+
+        User user = userRepository.findById(stored.getUserId())
+                .orElseThrow(() -> new UnauthorizedException("Refresh token is invalid"));
+        stored.setUsedAt(now);
+
+        String accessToken = jwtTokenProvider.generateToken(
+                user.getId(), user.getEmail(), "ROLE_" + user.getRole().name());
+        String refreshToken = createRefreshToken(user.getId(), stored.getFamilyId());
+        return new AuthResponse(accessToken, refreshToken);
+    }
+
+    private String createRefreshToken(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken()
+                .setUserId(userId)
+                .setTokenHash(hash(token))
+                .setFamilyId(familyId)
+                .setExpiresAt(LocalDateTime.now().plusNanos(refreshExpirationMs * 1_000_000)));
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
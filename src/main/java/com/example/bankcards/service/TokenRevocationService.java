@@ -0,0 +1,149 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.TokenRevocation;
+import com.example.bankcards.repository.TokenRevocationRepository;
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Список отозванных access-токенов.
+ * <p>
+ * Проверка на каждом запросе идёт по фильтру Блума в памяти, без обращения к БД. Только если фильтр
+ * отвечает «возможно отозван», отзыв подтверждается запросом в {@code token_revocations}.
+ * Отзывы с других узлов подтягиваются инкрементально по {@code revoked_at} с перекрытием окна:
+ * ID выдаются узлами пачками и не растут в порядке коммита, а повторное добавление в фильтр безвредно.
+ * Фильтр периодически пересобирается из неистёкших записей, чтобы не копить истёкшие.
+ * Первая сборка идёт при создании бина, до старта веб-сервера: иначе после рестарта токены,
+ * отозванные раньше, принимались бы до первого опроса.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final TokenRevocationRepository revocationRepository;
+    private final AtomicReference<BloomFilter> filter;
+    private final Counter filterHits;
+    private final Counter confirmedRevocations;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final long accessTokenTtlMs;
+    private final long pollOverlapMs;
+    // Опрос и пересборка ходят в БД: ReentrantLock вместо synchronized, чтобы виртуальный поток
+    // не закреплял поток-носитель на время запроса
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    // null - фильтр ещё не загружен
+    private LocalDateTime lastPollAt;
+
+    public TokenRevocationService(TokenRevocationRepository revocationRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${security.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${security.jwt.expiration-ms}") long accessTokenTtlMs,
+                                  @Value("${security.revocation.poll-overlap-ms:60000}") long pollOverlapMs) {
+        this.revocationRepository = revocationRepository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.accessTokenTtlMs = accessTokenTtlMs;
+        this.pollOverlapMs = pollOverlapMs;
+        this.filter = new AtomicReference<>(new BloomFilter(expectedEntries, falsePositiveRate));
+        this.filterHits = meterRegistry.counter("jwt.revocation.filter.hits");
+        this.confirmedRevocations = meterRegistry.counter("jwt.revocation.confirmed");
+    }
+
+    public boolean isRevoked(JwtPrincipal principal) {
+        BloomFilter current = filter.get();
+        boolean mightBeRevoked = (principal.tokenId() != null && current.mightContain(tokenKey(principal.tokenId())))
+                || current.mightContain(userKey(principal.userId()));
+        if (!mightBeRevoked) {
+            return false;
+        }
+        filterHits.increment();
+        Instant issued = principal.issuedAt() == null ? Instant.EPOCH : principal.issuedAt();
+        LocalDateTime issuedAt = LocalDateTime.ofInstant(issued, ZoneId.systemDefault());
+        boolean revoked = revocationRepository.isRevoked(principal.tokenId(), principal.userId(), issuedAt);
+        if (revoked) {
+            confirmedRevocations.increment();
+        }
+        return revoked;
+    }
+
+    // Отзывает все access-токены пользователя, выданные до текущего момента
+    public void revokeUser(Long userId) {
+        TokenRevocation revocation = new TokenRevocation()
+                .setUserId(userId)
+                .setExpiresAt(LocalDateTime.now().plusNanos(accessTokenTtlMs * 1_000_000));
+        revocationRepository.save(revocation);
+        filter.get().put(userKey(userId));
+    }
+
+    @PostConstruct
+    void loadOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.poll-ms:5000}", initialDelayString = "${security.revocation.poll-ms:5000}")
+    public void pollNewRevocations() {
+        refreshLock.lock();
+        try {
+            if (lastPollAt == null) {
+                rebuild();
+                return;
+            }
+            LocalDateTime pollStartedAt = LocalDateTime.now();
+            LocalDateTime since = lastPollAt.minusNanos(pollOverlapMs * 1_000_000);
+            BloomFilter current = filter.get();
+            for (TokenRevocation revocation : revocationRepository.findByRevokedAtAfter(since)) {
+                add(current, revocation);
+            }
+            lastPollAt = pollStartedAt;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.rebuild-ms:3600000}")
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            revocationRepository.deleteExpired(now);
+            BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+            for (TokenRevocation revocation : revocationRepository.findByExpiresAtAfter(now)) {
+                add(rebuilt, revocation);
+            }
+            filter.set(rebuilt);
+            // Записи, закоммиченные во время пересборки, подхватит следующий опрос за счёт перекрытия окна
+            lastPollAt = now;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void add(BloomFilter target, TokenRevocation revocation) {
+        if (revocation.getTokenId() != null) {
+            target.put(tokenKey(revocation.getTokenId()));
+        }
+        if (revocation.getUserId() != null) {
+            target.put(userKey(revocation.getUserId()));
+        }
+    }
+
+    private static String tokenKey(String tokenId) {
+        return "t:" + tokenId;
+    }
+
+    private static String userKey(Long userId) {
+        return "u:" + userId;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.VersionMarker;
 import com.example.bankcards.dto.transfer.TransferInput;
 import com.example.bankcards.dto.transfer.TransferResponse;
 import com.example.bankcards.entity.Card;
@@ -10,16 +11,15 @@ import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -27,11 +27,17 @@ public class TransferService {
 
     private final TransferRepository transferRepository;
     private final CardRepository cardRepository;
+    private final CardCache cardCache;
+
+    @Value("${app.transfers.history.max-offset:10000}")
+    private long maxHistoryOffset;
 
     public TransferService(TransferRepository transferRepository,
-                           CardRepository cardRepository) {
+                           CardRepository cardRepository,
+                           CardCache cardCache) {
         this.transferRepository = transferRepository;
         this.cardRepository = cardRepository;
+        this.cardCache = cardCache;
     }
 
     @Transactional
@@ -46,7 +52,9 @@ public class TransferService {
         Card to = cardRepository.findByIdForUpdate(request.toCardId())
                 .orElseThrow(() -> new NotFoundException("Карта, куда переводить, не найдена"));
 
-        if (!from.getUser().getId().equals(userId) || !to.getUser().getId().equals(userId)) {
+        // У удалённой карты владельца нет
+        if (from.getUser() == null || to.getUser() == null
+                || !from.getUser().getId().equals(userId) || !to.getUser().getId().equals(userId)) {
             throw new ForbiddenException("Карты не принадлежат одному и тому же пользователю");
         }
 
@@ -71,10 +79,23 @@ public class TransferService {
         tr.setTransferDate(LocalDateTime.now());
 
         Transfer saved = transferRepository.save(tr);
+        cardCache.evictCard(from.getId(), userId);
+        cardCache.evictCard(to.getId(), userId);
 
         return new TransferResponse(saved.getId(), from.getId(), to.getId(), amount, saved.getTransferDate());
     }
 
+    @Transactional(readOnly = true)
+    public VersionMarker getTransfersVersionByUser(Long userId) {
+        return transferRepository.findVersionMarkerByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public VersionMarker getTransfersVersionByCard(Long cardId) {
+        return transferRepository.findVersionMarkerByCardId(cardId);
+    }
+
+    @Transactional(readOnly = true)
     public Page<TransferResponse> getTransfersByUser(Long userId, Pageable pageable) {
         return transferRepository.findByFromCard_User_IdOrToCard_User_Id(userId, userId, pageable)
                 .map(t -> new TransferResponse(t.getId(),
@@ -84,26 +105,22 @@ public class TransferService {
                         t.getTransferDate()));
     }
 
+    // Каждая ветка запроса читает offset + limit строк, поэтому глубина страниц ограничена
+    @Transactional(readOnly = true)
     public Page<TransferResponse> getTransfersByCard(Long cardId, Pageable pageable) {
-        List<Transfer> combined = new ArrayList<>();
-        combined.addAll(transferRepository.findByFromCard_Id(cardId, Pageable.unpaged()).getContent());
-        combined.addAll(transferRepository.findByToCard_Id(cardId, Pageable.unpaged()).getContent());
-
-        combined.sort(Comparator.comparing(Transfer::getTransferDate).reversed());
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), combined.size());
-        List<TransferResponse> content = new ArrayList<>();
-        if (start <= end) {
-            for (Transfer t : combined.subList(start, end)) {
-                content.add(new TransferResponse(t.getId(),
+        int limit = pageable.getPageSize();
+        long offset = pageable.getOffset();
+        if (offset > maxHistoryOffset) {
+            throw new IllegalArgumentException("Page offset must not exceed " + maxHistoryOffset);
+        }
+        List<TransferResponse> content = transferRepository.findPageByCardId(cardId, offset + limit, limit, offset)
+                .stream()
+                .map(t -> new TransferResponse(t.getId(),
                         t.getFromCard().getId(),
                         t.getToCard().getId(),
                         t.getAmount(),
-                        t.getTransferDate()));
-            }
-        }
-
-        return new PageImpl<>(content, pageable, combined.size());
+                        t.getTransferDate()))
+                .toList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> transferRepository.countByCardId(cardId));
     }
 }
@@ -0,0 +1,158 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.user.UserView;
+import com.example.bankcards.security.CustomUserDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Кеш пользователей: {@link UserView} по ID и индексы email/username -> ID.
+ * В этих кешах нет хешей паролей. Для логина отдельно кешируются {@link CustomUserDetails} с хешем,
+ * с коротким TTL {@code auth-ttl}, чтобы хеш не лежал в памяти дольше настроенного.
+ * Инвалидация - сразу и повторно после коммита, с проверкой поколения при записи загруженного, как в {@link CardCache}.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<Long, UserView> byId;
+    private final Cache<String, Long> idByEmail;
+    private final Cache<String, Long> idByUsername;
+    private final Cache<String, CustomUserDetails> authByEmail;
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${app.user.cache.max-size:10000}") long maxSize,
+                     @Value("${app.user.cache.ttl:PT10M}") Duration ttl,
+                     @Value("${app.user.cache.auth-ttl:PT1M}") Duration authTtl) {
+        this.byId = build(maxSize, ttl);
+        this.idByEmail = build(maxSize, ttl);
+        this.idByUsername = build(maxSize, ttl);
+        this.authByEmail = build(maxSize, authTtl);
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByEmail, "users.by-email");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByUsername, "users.by-username");
+        CaffeineCacheMetrics.monitor(meterRegistry, authByEmail, "users.auth");
+    }
+
+    private static <K, V> Cache<K, V> build(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Загрузчики могут вернуть пустой результат - он не кешируется.
+    // Загрузка идёт вне Cache.get(key, loader): тот вызывает загрузчик под блокировкой внутри
+    // ConcurrentHashMap.compute, и запрос в БД закрепил бы виртуальный поток за носителем
+    public Optional<UserView> getById(Long id, Function<Long, Optional<UserView>> loader) {
+        UserView cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long loadGeneration = generation.get();
+        Optional<UserView> loaded = loader.apply(id);
+        loaded.ifPresent(user -> put(user, loadGeneration));
+        return loaded;
+    }
+
+    public Optional<UserView> getByEmail(String email, Function<String, Optional<UserView>> loader) {
+        return getByKey(idByEmail, email, loader);
+    }
+
+    public Optional<UserView> getByUsername(String username, Function<String, Optional<UserView>> loader) {
+        return getByKey(idByUsername, username, loader);
+    }
+
+    public CustomUserDetails getAuthDetails(String email, Supplier<CustomUserDetails> loader) {
+        CustomUserDetails cached = authByEmail.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        CustomUserDetails loaded = loader.get();
+        if (loaded != null) {
+            putIfCurrent(authByEmail, email, loaded, loadGeneration);
+        }
+        return loaded;
+    }
+
+    private Optional<UserView> getByKey(Cache<String, Long> index, String key, Function<String, Optional<UserView>> loader) {
+        Long id = index.getIfPresent(key);
+        UserView cached = id == null ? null : byId.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long loadGeneration = generation.get();
+        Optional<UserView> loaded = loader.apply(key);
+        loaded.ifPresent(user -> put(user, loadGeneration));
+        return loaded;
+    }
+
+    private void put(UserView user, long loadGeneration) {
+        putIfCurrent(byId, user.id(), user, loadGeneration);
+        putIfCurrent(idByEmail, user.email(), user.id(), loadGeneration);
+        putIfCurrent(idByUsername, user.username(), user.id(), loadGeneration);
+    }
+
+    // После регистрации: email или username могли принадлежать удалённому пользователю
+    public void evictKeys(String email, String username) {
+        evictNowAndAfterCommit(() -> {
+            idByEmail.invalidate(email);
+            idByUsername.invalidate(username);
+            authByEmail.invalidate(email);
+        });
+    }
+
+    public void evictAuth(String email) {
+        evictNowAndAfterCommit(() -> authByEmail.invalidate(email));
+    }
+
+    // После удаления или смены роли
+    public void evictUser(Long id) {
+        evictNowAndAfterCommit(() -> {
+            byId.invalidate(id);
+            idByEmail.asMap().values().removeIf(id::equals);
+            idByUsername.asMap().values().removeIf(id::equals);
+            authByEmail.asMap().values().removeIf(details -> id.equals(details.getId()));
+        });
+    }
+
+    // Загрузка могла прочитать данные до коммита, а инвалидация после коммита - пройти, пока она шла.
+    // Поэтому значение сначала кладётся, а потом сверяется поколение: если инвалидация была, значение
+    // убирается; если она ещё впереди, то уберёт его сама
+    private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, long loadGeneration) {
+        cache.put(key, value);
+        if (generation.get() != loadGeneration) {
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        Runnable invalidate = () -> {
+            generation.incrementAndGet();
+            eviction.run();
+        };
+        invalidate.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate.run();
+                }
+            });
+        }
+    }
+}
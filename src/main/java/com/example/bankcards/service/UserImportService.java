@@ -0,0 +1,273 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.user.UserImportFailure;
+import com.example.bankcards.dto.user.UserImportFormat;
+import com.example.bankcards.dto.user.UserImportProgress;
+import com.example.bankcards.dto.user.UserImportRow;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.repository.UserImportRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Потоковый импорт пользователей из CSV (с заголовком) или NDJSON.
+ * <p>
+ * Вход читается построчно и обрабатывается пачками по {@code chunk-size}: пароли пачки хешируются
+ * параллельно в собственном ограниченном пуле (пул логина не занимается), затем пачка вставляется
+ * одним запросом. Пачки коммитятся независимо. Ошибки отдельных строк (валидация, дубликаты)
+ * не прерывают импорт и возвращаются в прогрессе.
+ */
+@Service
+public class UserImportService {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    private static final int MAX_USERNAME_LENGTH = 50;
+
+    private final UserImportRepository userImportRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final UserCache userCache;
+    private final int chunkSize;
+    private final ThreadPoolExecutor hashingExecutor;
+
+    public UserImportService(UserImportRepository userImportRepository,
+                             PasswordEncoder passwordEncoder,
+                             ObjectMapper objectMapper,
+                             UserCache userCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.user.import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.user.import.hashing-threads:0}") int hashingThreads) {
+        this.userImportRepository = userImportRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.userCache = userCache;
+        this.chunkSize = Math.max(chunkSize, 1);
+        // 0 - половина ядер, чтобы импорт не отнимал весь CPU у обычных запросов
+        int threads = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        // Очередь не больше пачки; при переполнении хеширует вызывающий поток - естественное торможение чтения
+        this.hashingExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.chunkSize),
+                r -> {
+                    Thread thread = new Thread(r, "user-import-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        new ExecutorServiceMetrics(hashingExecutor, "user-import-hashing", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public UserImportProgress importUsers(InputStream input, UserImportFormat format, Consumer<UserImportProgress> progress) {
+        long processed = 0;
+        long imported = 0;
+        List<UserImportRow> chunk = new ArrayList<>(chunkSize);
+        List<UserImportFailure> failures = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = format == UserImportFormat.CSV ? csvHeader(reader.readLine()) : null;
+            long lineNumber = format == UserImportFormat.CSV ? 1 : 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                processed++;
+                try {
+                    chunk.add(format == UserImportFormat.CSV
+                            ? parseCsvRow(line, lineNumber, csvColumns)
+                            : parseNdjsonRow(line, lineNumber));
+                } catch (JsonProcessingException e) {
+                    failures.add(new UserImportFailure(lineNumber, "Malformed row: " + e.getOriginalMessage()));
+                } catch (IllegalArgumentException e) {
+                    failures.add(new UserImportFailure(lineNumber, "Malformed row: " + e.getMessage()));
+                }
+                if (chunk.size() == chunkSize) {
+                    imported += importChunk(chunk, failures);
+                    progress.accept(new UserImportProgress(processed, imported, List.copyOf(failures), false));
+                    chunk.clear();
+                    failures.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        imported += importChunk(chunk, failures);
+        UserImportProgress result = new UserImportProgress(processed, imported, List.copyOf(failures), true);
+        progress.accept(result);
+        return result;
+    }
+
+    private int importChunk(List<UserImportRow> chunk, List<UserImportFailure> failures) {
+        List<UserImportRow> valid = new ArrayList<>(chunk.size());
+        Set<String> emails = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        for (UserImportRow row : chunk) {
+            String error = validate(row);
+            if (error == null && !emails.add(row.email())) {
+                error = "Duplicate email in import";
+            }
+            if (error == null && !usernames.add(row.username())) {
+                error = "Duplicate username in import";
+            }
+            if (error != null) {
+                failures.add(new UserImportFailure(row.line(), error));
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<String>> hashes = valid.stream()
+                .map(row -> row.passwordHash() != null
+                        ? CompletableFuture.completedFuture(row.passwordHash())
+                        : CompletableFuture.supplyAsync(() -> passwordEncoder.encode(row.password()), hashingExecutor))
+                .toList();
+        List<String> hashed = hashes.stream().map(CompletableFuture::join).toList();
+
+        Set<String> inserted = userImportRepository.insertIgnoringConflicts(valid, hashed);
+        if (inserted.size() < valid.size()) {
+            List<String> rejected = valid.stream().map(UserImportRow::email).filter(e -> !inserted.contains(e)).toList();
+            Set<String> takenEmails = userImportRepository.findExistingEmails(rejected);
+            for (UserImportRow row : valid) {
+                if (!inserted.contains(row.email())) {
+                    failures.add(new UserImportFailure(row.line(),
+                            takenEmails.contains(row.email()) ? "Email already taken" : "Username already taken"));
+                }
+            }
+        }
+        for (UserImportRow row : valid) {
+            if (inserted.contains(row.email())) {
+                userCache.evictKeys(row.email(), row.username());
+            }
+        }
+        return inserted.size();
+    }
+
+    private static String validate(UserImportRow row) {
+        if (row.email() == null || row.email().isBlank() || !row.email().contains("@")) {
+            return "Invalid email";
+        }
+        if (row.username() == null || row.username().isBlank()) {
+            return "Username is required";
+        }
+        if (row.username().length() > MAX_USERNAME_LENGTH) {
+            return "Username is too long";
+        }
+        boolean hasPassword = row.password() != null && !row.password().isEmpty();
+        boolean hasHash = row.passwordHash() != null && !row.passwordHash().isEmpty();
+        if (hasPassword == hasHash) {
+            return "Exactly one of password or passwordHash is required";
+        }
+        if (hasHash && !BCRYPT_HASH.matcher(row.passwordHash()).matches()) {
+            return "passwordHash is not a BCrypt hash";
+        }
+        return null;
+    }
+
+    private UserImportRow parseNdjsonRow(String line, long lineNumber) throws JsonProcessingException {
+        UserImportRow row = objectMapper.readValue(line, UserImportRow.class);
+        return new UserImportRow(lineNumber, row.email(), row.username(), row.password(), row.passwordHash(),
+                row.role() == null ? Role.USER : row.role());
+    }
+
+    private static Map<String, Integer> csvHeader(String header) {
+        if (header == null) {
+            return Map.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("email") || !columns.containsKey("username")) {
+            throw new IllegalArgumentException("CSV header must contain email and username columns");
+        }
+        return columns;
+    }
+
+    private static UserImportRow parseCsvRow(String line, long lineNumber, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        String role = column(values, columns, "role");
+        return new UserImportRow(
+                lineNumber,
+                column(values, columns, "email"),
+                column(values, columns, "username"),
+                column(values, columns, "password"),
+                column(values, columns, "passwordhash"),
+                role == null ? Role.USER : Role.valueOf(role.toUpperCase(Locale.ROOT)));
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Разбор строки CSV с поддержкой значений в двойных кавычках и "" внутри них
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingExecutor.shutdown();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.UserDeletionJob;
+import com.example.bankcards.entity.UserDeletionStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserDeletionJobRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Фоновое удаление мягко удалённых пользователей.
+ * <p>
+ * Карты удаляются пачками по {@code chunk-size} одним выражением на пачку (надгробие в
+ * {@code card_tombstones} и отвязка карты от владельца - строки карт остаются, чтобы переводы
+ * сохранили внешние ключи), каждая пачка - в своей транзакции; сущности не загружаются.
+ * Прогресс пишется в {@code user_deletion_jobs}. Если узел потерял лидерство, задача остаётся
+ * в статусе RUNNING и продолжается со следующего запуска.
+ */
+@Service
+public class UserPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserPurgeService.class);
+
+    private static final String PURGE_JOB = "user-purge";
+    private static final List<UserDeletionStatus> UNFINISHED = List.of(UserDeletionStatus.PENDING, UserDeletionStatus.RUNNING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final UserDeletionJobRepository userDeletionJobRepository;
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardCache cardCache;
+    private final JobLeaseService jobLeaseService;
+    private final Counter purgedUsersCounter;
+    private final Counter purgedCardsCounter;
+    private final Counter failedJobsCounter;
+
+    @Value("${app.user.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.user.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.user.purge.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${app.user.purge.jobs-per-run:100}")
+    private int jobsPerRun;
+
+    public UserPurgeService(UserDeletionJobRepository userDeletionJobRepository,
+                            UserRepository userRepository,
+                            CardRepository cardRepository,
+                            CardCache cardCache,
+                            JobLeaseService jobLeaseService,
+                            MeterRegistry meterRegistry) {
+        this.userDeletionJobRepository = userDeletionJobRepository;
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.cardCache = cardCache;
+        this.jobLeaseService = jobLeaseService;
+        this.purgedUsersCounter = meterRegistry.counter("users.purge.users");
+        this.purgedCardsCounter = meterRegistry.counter("users.purge.cards");
+        this.failedJobsCounter = meterRegistry.counter("users.purge.failed");
+    }
+
+    @Scheduled(fixedDelayString = "${app.user.purge.poll-ms:60000}")
+    public void purgeDeletedUsers() {
+        if (!enabled) {
+            return;
+        }
+        jobLeaseService.runExclusively(PURGE_JOB, this::purgePending);
+    }
+
+    void purgePending(BooleanSupplier leaseHeld) {
+        List<UserDeletionJob> jobs = userDeletionJobRepository.findByStatusInOrderByIdAsc(UNFINISHED, Limit.of(jobsPerRun));
+        for (UserDeletionJob job : jobs) {
+            if (!leaseHeld.getAsBoolean()) {
+                return;
+            }
+            purge(job, leaseHeld);
+        }
+    }
+
+    private void purge(UserDeletionJob job, BooleanSupplier leaseHeld) {
+        Long userId = job.getUserId();
+        if (job.getStatus() == UserDeletionStatus.PENDING) {
+            job = userDeletionJobRepository.save(job
+                    .setStatus(UserDeletionStatus.RUNNING)
+                    .setStartedAt(LocalDateTime.now()));
+        }
+        int size = Math.max(chunkSize, 1);
+        try {
+            int deleted;
+            do {
+                deleted = cardRepository.tombstoneUserCardsBatch(userId, size);
+                purgedCardsCounter.increment(deleted);
+                if (deleted > 0) {
+                    job = userDeletionJobRepository.save(job.setCardsDeleted(job.getCardsDeleted() + deleted));
+                }
+            } while (deleted == size && leaseHeld.getAsBoolean() && pauseBetweenChunks());
+
+            if (deleted == size) {
+                log.info("User purge for user {} interrupted after {} cards", userId, job.getCardsDeleted());
+                return;
+            }
+            userRepository.purgeSoftDeleted(userId);
+            cardCache.evictAllUserCards(userId);
+            userDeletionJobRepository.save(job
+                    .setStatus(UserDeletionStatus.COMPLETED)
+                    .setFinishedAt(LocalDateTime.now()));
+            purgedUsersCounter.increment();
+            log.info("User {} purged: {} cards deleted", userId, job.getCardsDeleted());
+        } catch (RuntimeException e) {
+            failedJobsCounter.increment();
+            log.warn("User purge for user {} failed: {}", userId, e.getMessage());
+            userDeletionJobRepository.save(job
+                    .setStatus(UserDeletionStatus.FAILED)
+                    .setError(truncate(e.getMessage()))
+                    .setFinishedAt(LocalDateTime.now()));
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private boolean pauseBetweenChunks() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
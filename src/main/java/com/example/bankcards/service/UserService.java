@@ -1,71 +1,197 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.user.CreateUserInput;
+import com.example.bankcards.dto.user.UserDeletionJobResponse;
 import com.example.bankcards.dto.user.UserResponse;
+import com.example.bankcards.dto.user.UserView;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.UserDeletionJob;
 import com.example.bankcards.exception.AlreadyExistsException;
 import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.TableStatsRepository;
+import com.example.bankcards.repository.UserDeletionJobRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.PasswordHashingExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.data.domain.Page;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class UserService {
 
+    // Имена уникальных ограничений, которые Postgres создал для users (db.changelog-001)
+    static final String EMAIL_CONSTRAINT = "users_email_key";
+    static final String USERNAME_CONSTRAINT = "users_username_key";
+
+    // Короче трёх символов триграммы не работают, и запрос превращается в полный скан
+    private static final int MIN_SEARCH_LENGTH = 3;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CardCache cardCache;
+    private final TableStatsRepository tableStatsRepository;
+    private final TokenRevocationService tokenRevocationService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final UserCache userCache;
+    private final UserDeletionJobRepository userDeletionJobRepository;
+
+    @Value("${app.user.search.max-page-size:50}")
+    private int searchMaxPageSize;
 
     public UserService(UserRepository userRepository,
-                       PasswordEncoder passwordEncoder) {
+                       PasswordEncoder passwordEncoder,
+                       CardCache cardCache,
+                       TableStatsRepository tableStatsRepository,
+                       TokenRevocationService tokenRevocationService,
+                       PasswordHashingExecutor passwordHashingExecutor,
+                       UserCache userCache,
+                       UserDeletionJobRepository userDeletionJobRepository) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.cardCache = cardCache;
+        this.tableStatsRepository = tableStatsRepository;
+        this.tokenRevocationService = tokenRevocationService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.userCache = userCache;
+        this.userDeletionJobRepository = userDeletionJobRepository;
     }
 
+    // Уникальность проверяет сама вставка: без предварительных exists-запросов и без гонки между ними
     public ApiResult<UserResponse> register(CreateUserInput request) {
-        if (userRepository.existsByUsername(request.username())) {
-            throw new AlreadyExistsException("Username already taken");
-        }
-        if (userRepository.existsByEmail(request.email())) {
-            throw new AlreadyExistsException("Email already taken");
-        }
-
         User user = new User();
         user.setUsername(request.username());
         user.setEmail(request.email());
-        user.setPassword(passwordEncoder.encode(request.password()));
+        user.setPassword(passwordHashingExecutor.call("register", () -> passwordEncoder.encode(request.password())));
         user.setRole(Role.USER);
 
-        User saved = userRepository.save(user);
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException ex) {
+            throw toAlreadyExists(ex);
+        }
+        userCache.evictKeys(saved.getEmail(), saved.getUsername());
         UserResponse response = new UserResponse(saved.getUsername(), saved.getEmail(), saved.getRole());
         return new ApiResult.Success<>(response);
     }
 
-    public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+    static RuntimeException toAlreadyExists(DataIntegrityViolationException ex) {
+        String constraint = constraintName(ex);
+        if (EMAIL_CONSTRAINT.equals(constraint)) {
+            return new AlreadyExistsException("Email already taken");
+        }
+        if (USERNAME_CONSTRAINT.equals(constraint)) {
+            return new AlreadyExistsException("Username already taken");
+        }
+        return ex;
+    }
+
+    private static String constraintName(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
+
+    public Optional<UserView> findByUsername(String username) {
+        return userCache.getByUsername(username, key -> userRepository.findByUsername(key).map(UserView::fromEntity));
     }
 
-    public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+    public Optional<UserView> findByEmail(String email) {
+        return userCache.getByEmail(email, key -> userRepository.findByEmail(key).map(UserView::fromEntity));
     }
 
-    public Optional<User> findById(Long id) {
-        return userRepository.findById(id);
+    public Optional<UserView> findById(Long id) {
+        return userCache.getById(id, key -> userRepository.findById(key).map(UserView::fromEntity));
     }
 
-    public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
+    @Transactional(readOnly = true)
+    public KeysetPage<UserView> searchUsers(String query, String cursor, int size) {
+        String trimmed = query == null ? "" : query.trim();
+        if (trimmed.length() < MIN_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at least " + MIN_SEARCH_LENGTH + " characters");
+        }
+        if (size < 1 || size > searchMaxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + searchMaxPageSize);
+        }
+        long afterId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        String pattern = "%" + escapeLike(trimmed) + "%";
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<UserView> found = userRepository.searchViews(pattern, afterId, Limit.of(size + 1));
+        if (found.size() <= size) {
+            return new KeysetPage<>(found, null, false);
+        }
+        List<UserView> content = List.copyOf(found.subList(0, size));
+        return new KeysetPage<>(content, String.valueOf(content.get(size - 1).id()), true);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Transactional
+    public UserView changeRole(Long id, Role role) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+        user.setRole(role);
+        userCache.evictUser(id);
+        // В выданных токенах записана старая роль
+        tokenRevocationService.revokeUser(id);
+        return UserView.fromEntity(user);
+    }
+
+    // Пользователь скрывается одним UPDATE, карты и сама строка удаляются фоново (UserPurgeService)
+    @Transactional
+    public UserDeletionJobResponse deleteUser(Long id) {
+        if (userRepository.softDelete(id) == 0) {
             throw new NotFoundException("User not found");
         }
-        userRepository.deleteById(id);
+        UserDeletionJob job = userDeletionJobRepository.save(new UserDeletionJob().setUserId(id));
+        cardCache.evictAllUserCards(id);
+        userCache.evictUser(id);
+        // Уже выданные access-токены отзываются, refresh-токены удалятся вместе со строкой
+        tokenRevocationService.revokeUser(id);
+        return UserDeletionJobResponse.fromEntity(job);
+    }
+
+    @Transactional(readOnly = true)
+    public UserDeletionJobResponse getDeletionJob(Long jobId) {
+        return userDeletionJobRepository.findById(jobId)
+                .map(UserDeletionJobResponse::fromEntity)
+                .orElseThrow(() -> new NotFoundException("Deletion job not found"));
     }
 
-    public Page<User> getAllUsers(Pageable pageable) {
-        return userRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public PageResponse<User> getAllUsers(Pageable pageable, CountMode count) {
+        return switch (count) {
+            case EXACT -> PageResponse.exact(userRepository.findAll(pageable));
+            case NONE -> PageResponse.uncounted(userRepository.findAllBy(pageable));
+            case ESTIMATE -> tableStatsRepository.estimateRowCount("users")
+                    .map(estimate -> PageResponse.estimated(userRepository.findAllBy(pageable), estimate))
+                    .orElseGet(() -> PageResponse.exact(userRepository.findAll(pageable)));
+        };
     }
 }
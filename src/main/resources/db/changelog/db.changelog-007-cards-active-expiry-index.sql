@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_cards_active_expiry_date ON cards (expiry_date) WHERE status = 'ACTIVE';
@@ -0,0 +1,7 @@
+CREATE TABLE job_locks (
+                           job_name VARCHAR(100) PRIMARY KEY,
+                           locked_by VARCHAR(255),
+                           locked_at TIMESTAMP,
+                           heartbeat_at TIMESTAMP,
+                           completed_at TIMESTAMP
+);
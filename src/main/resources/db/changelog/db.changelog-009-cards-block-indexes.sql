@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_cards_block_requested ON cards (id) WHERE block_requested = true;
+CREATE INDEX IF NOT EXISTS idx_cards_user_id ON cards (user_id, id);
@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_cards_expiry_date_id ON cards (expiry_date, id);
+CREATE INDEX IF NOT EXISTS idx_cards_balance_id ON cards (balance, id);
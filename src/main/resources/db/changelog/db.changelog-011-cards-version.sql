@@ -0,0 +1,3 @@
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_transfers_from_card_id ON transfers (from_card_id);
+CREATE INDEX IF NOT EXISTS idx_transfers_to_card_id ON transfers (to_card_id);
@@ -0,0 +1,28 @@
+CREATE TABLE refresh_tokens (
+                                id BIGSERIAL PRIMARY KEY,
+                                user_id BIGINT NOT NULL,
+                                token_hash VARCHAR(64) NOT NULL UNIQUE,
+                                family_id VARCHAR(36) NOT NULL,
+                                created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                expires_at TIMESTAMP NOT NULL,
+                                used_at TIMESTAMP,
+                                revoked_at TIMESTAMP,
+                                CONSTRAINT fk_refresh_tokens_users FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+
+CREATE TABLE token_revocations (
+                                   id BIGSERIAL PRIMARY KEY,
+                                   token_id VARCHAR(36),
+                                   user_id BIGINT,
+                                   revoked_at TIMESTAMP NOT NULL,
+                                   expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX idx_token_revocations_token_id ON token_revocations (token_id);
+CREATE INDEX idx_token_revocations_user_id ON token_revocations (user_id, revoked_at);
+CREATE INDEX idx_token_revocations_revoked_at ON token_revocations (revoked_at);
+CREATE INDEX idx_token_revocations_expires_at ON token_revocations (expires_at);
+
+ALTER SEQUENCE refresh_tokens_id_seq INCREMENT BY 50;
+ALTER SEQUENCE token_revocations_id_seq INCREMENT BY 50;
@@ -0,0 +1,27 @@
+-- Мягкое удаление: пользователь скрыт сразу, строки удаляются фоновой задачей
+ALTER TABLE users ADD COLUMN deleted_at TIMESTAMP;
+
+-- Удалённая карта остаётся строкой без владельца, чтобы переводы сохранили внешние ключи;
+-- бывший владелец записывается в card_tombstones
+ALTER TABLE cards ALTER COLUMN user_id DROP NOT NULL;
+
+CREATE TABLE card_tombstones (
+                                 card_id BIGINT PRIMARY KEY,
+                                 user_id BIGINT NOT NULL,
+                                 deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_card_tombstones_user_id ON card_tombstones (user_id);
+
+CREATE TABLE user_deletion_jobs (
+                                    id BIGSERIAL PRIMARY KEY,
+                                    user_id BIGINT NOT NULL,
+                                    status VARCHAR(20) NOT NULL,
+                                    cards_deleted BIGINT NOT NULL DEFAULT 0,
+                                    error VARCHAR(1000),
+                                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                    started_at TIMESTAMP,
+                                    finished_at TIMESTAMP
+);
+CREATE INDEX idx_user_deletion_jobs_unfinished ON user_deletion_jobs (id) WHERE status IN ('PENDING', 'RUNNING');
+
+ALTER SEQUENCE user_deletion_jobs_id_seq INCREMENT BY 50;
@@ -0,0 +1,6 @@
+-- История переводов по карте и по картам пользователя: поиск по карте, keyset по убыванию ID.
+-- Одноколоночные индексы из 011 заменяются составными: префикс (card_id) покрывает прежние запросы.
+DROP INDEX IF EXISTS idx_transfers_from_card_id;
+DROP INDEX IF EXISTS idx_transfers_to_card_id;
+CREATE INDEX IF NOT EXISTS idx_transfers_from_card_id_id ON transfers (from_card_id, id);
+CREATE INDEX IF NOT EXISTS idx_transfers_to_card_id_id ON transfers (to_card_id, id);
@@ -0,0 +1,3 @@
+-- История карты по дате (TransferRepository.findPageByCardId): ID из пулового sequence не упорядочен по времени
+CREATE INDEX IF NOT EXISTS idx_transfers_from_card_date_id ON transfers (from_card_id, transfer_date, id);
+CREATE INDEX IF NOT EXISTS idx_transfers_to_card_date_id ON transfers (to_card_id, transfer_date, id);
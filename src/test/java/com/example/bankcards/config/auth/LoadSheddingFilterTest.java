@@ -0,0 +1,107 @@
+package com.example.bankcards.config.auth;
+
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit;
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit.Priority;
+import com.example.bankcards.config.workload.Workload;
+import com.example.bankcards.config.workload.WorkloadClass;
+import com.example.bankcards.security.JwtPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoadSheddingFilterTest {
+
+    static class SampleController {
+        @Workload(WorkloadClass.TRANSFER_WRITE)
+        public void transfer() {
+        }
+    }
+
+    private final HandlerMapping handlerMapping = mock(HandlerMapping.class);
+    private AdaptiveConcurrencyLimit limit;
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        limit = new AdaptiveConcurrencyLimit(new SimpleMeterRegistry(), 5, 1, 10, 250, 2.0, 0.9, 0.8, 0.5);
+        filter = new LoadSheddingFilter(limit, handlerMapping, new ObjectMapper());
+        // Заняты 4 из 5 мест: обычным запросам (доля 0.8) места нет, переводам - есть
+        for (int i = 0; i < 4; i++) {
+            limit.tryAcquire(Priority.CRITICAL);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldRejectWith503AndRetryAfter_WhenOverLimit() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cards/user"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("overloaded");
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void doFilter_ShouldAdmitAuthenticatedTransfer_WhenNormalRequestsAreShed() throws Exception {
+        HandlerMethod transfer = new HandlerMethod(new SampleController(), SampleController.class.getMethod("transfer"));
+        when(handlerMapping.getHandler(any())).thenReturn(new HandlerExecutionChain(transfer));
+        JwtPrincipal principal = new JwtPrincipal(1L, "user", "USER", "jti", Instant.now());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/transfers/own"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(chain.getRequest()).isNotNull();
+        // Место освобождено после ответа
+        assertThat(limit.tryAcquire(Priority.CRITICAL)).isTrue();
+    }
+
+    @Test
+    void doFilter_ShouldShrinkLimit_OnServerErrorsButNotOnBulkheadRejections() throws Exception {
+        assertThat(limitAfterResponses(503)).isEqualTo(10);
+        assertThat(limitAfterResponses(500)).isEqualTo(5);
+    }
+
+    // Окно в 0 мс: лимит пересчитывается, как только набралось 10 ответов
+    private int limitAfterResponses(int status) throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(new SimpleMeterRegistry(), 10, 1, 20, 0, 2.0, 0.5, 0.8, 0.5);
+        LoadSheddingFilter filter = new LoadSheddingFilter(limit, handlerMapping, new ObjectMapper());
+        FilterChain chain = (request, response) -> ((HttpServletResponse) response).setStatus(status);
+        for (int i = 0; i < 10; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/cards/user"), new MockHttpServletResponse(), chain);
+        }
+        return limit.getLimit();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bankcards.config.auth;
+
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit;
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit.Priority;
+import com.example.bankcards.dto.transfer.TransferInput;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.service.TransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Приоритет сброса нагрузки через настоящую цепочку фильтров: JwtTokenFilter должен успеть
+ * аутентифицировать запрос до LoadSheddingFilter, а requestMappingHandlerMapping - найти {@code @Workload}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:load-shedding;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.liquibase.enabled=false",
+        "spring.r2dbc.url=r2dbc:postgresql://localhost:1/unused",
+        "spring.r2dbc.pool.initial-size=0",
+        "app.user.purge.enabled=false",
+        "app.card.expiry-sweep.enabled=false",
+        "app.load-shedding.initial-limit=5",
+        "app.load-shedding.min-limit=1"
+})
+@AutoConfigureMockMvc
+class LoadSheddingSecurityChainTest {
+
+    // Заняты 4 из 5 мест: обычным запросам (доля 0.8) места нет, переводам - есть
+    private static final int OCCUPIED = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @MockBean
+    private TransferService transferService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = jwtTokenProvider.generateToken(1L, "user@example.com", "ROLE_USER");
+        for (int i = 0; i < OCCUPIED; i++) {
+            concurrencyLimit.tryAcquire(Priority.CRITICAL);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (int i = 0; i < OCCUPIED; i++) {
+            concurrencyLimit.release(-1, false);
+        }
+    }
+
+    @Test
+    void authenticatedTransfer_ShouldBeAdmitted_WhenNormalRequestsAreShed() throws Exception {
+        TransferInput input = new TransferInput(10L, 20L, new BigDecimal("100.00"));
+        when(transferService.transferBetweenOwnCards(eq(1L), any(TransferInput.class)))
+                .thenReturn(new TransferResponse(1L, 10L, 20L, new BigDecimal("100.00"), LocalDateTime.now()));
+
+        mockMvc.perform(get("/cards/user")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        mockMvc.perform(post("/transfers/own")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(1));
+    }
+
+    @Test
+    void anonymousTransfer_ShouldBeShedAsNormal() throws Exception {
+        TransferInput input = new TransferInput(10L, 20L, new BigDecimal("100.00"));
+
+        mockMvc.perform(post("/transfers/own")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
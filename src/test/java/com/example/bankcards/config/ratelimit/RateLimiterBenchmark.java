@@ -0,0 +1,56 @@
+package com.example.bankcards.config.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Arrays;
+
+/**
+ * Стоимость {@link RateLimiter#check} на горячем пути: ведро уже в кеше, лимит не исчерпан.
+ * Ничего не проверяет и без {@code -Dbenchmark=true} не запускается - ни в {@code mvn test}, ни при
+ * запуске всех тестов из IDE. Запуск и результаты - docs/benchmarks/rate-limit/README.md.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RateLimiterBenchmark {
+
+    private static final int SUBJECTS = 10_000;
+    private static final int CALLS = 2_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void check() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.rate-limit.reads.per-second", "1000000000")
+                .withProperty("app.rate-limit.reads.burst", "1000000");
+        RateLimiter rateLimiter = new RateLimiter(environment, new SimpleMeterRegistry(), true, 100_000);
+        Long[] subjects = new Long[SUBJECTS];
+        for (int i = 0; i < SUBJECTS; i++) {
+            subjects[i] = (long) i;
+            rateLimiter.check(RateLimitGroup.READS, subjects[i]);
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(rateLimiter, subjects);
+        }
+        double[] nanosPerCall = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            nanosPerCall[i] = round(rateLimiter, subjects);
+        }
+        Arrays.sort(nanosPerCall);
+        System.out.printf("RateLimiter.check, %d subjects: median %.0f ns/op, min %.0f, max %.0f%n",
+                SUBJECTS, nanosPerCall[ROUNDS / 2], nanosPerCall[0], nanosPerCall[ROUNDS - 1]);
+    }
+
+    private static double round(RateLimiter rateLimiter, Long[] subjects) {
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            rateLimiter.check(RateLimitGroup.READS, subjects[i % SUBJECTS]);
+        }
+        return (double) (System.nanoTime() - start) / CALLS;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bankcards.config.ratelimit;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateLimiterTest {
+
+    private MeterRegistry meterRegistry;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.rate-limit.reads.per-second", "0.1")
+                .withProperty("app.rate-limit.reads.burst", "3");
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(environment, meterRegistry, true, 1000);
+    }
+
+    @Test
+    void check_ShouldAllowBurstThenThrottleWithRetryAfter() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.check(RateLimitGroup.READS, 1L);
+        }
+
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> rateLimiter.check(RateLimitGroup.READS, 1L));
+        assertThat(ex.getRetryAfterSeconds()).isBetween(9L, 10L);
+        assertThat(meterRegistry.counter("rate_limit.throttled", "group", "reads").count()).isEqualTo(1);
+    }
+
+    @Test
+    void check_ShouldKeepSeparateBucketsPerSubjectAndGroup() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.check(RateLimitGroup.READS, 1L);
+        }
+
+        assertDoesNotThrow(() -> rateLimiter.check(RateLimitGroup.READS, 2L));
+        assertDoesNotThrow(() -> rateLimiter.check(RateLimitGroup.READS, "10.0.0.1"));
+        assertDoesNotThrow(() -> rateLimiter.check(RateLimitGroup.TRANSFERS, 1L));
+    }
+
+    @Test
+    void bucket_ShouldRefillOneTokenPerInterval() {
+        long interval = TimeUnit.MILLISECONDS.toNanos(100);
+        long tolerance = 2 * interval;
+        RateBucket bucket = new RateBucket(0);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(0, interval, tolerance)).isZero();
+        }
+        assertThat(bucket.tryAcquire(0, interval, tolerance)).isEqualTo(interval);
+        assertThat(bucket.tryAcquire(interval, interval, tolerance)).isZero();
+        assertThat(bucket.tryAcquire(interval, interval, tolerance)).isPositive();
+        // После простоя ведро полное, но не больше burst
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(10 * interval, interval, tolerance)).isZero();
+        }
+        assertThat(bucket.tryAcquire(10 * interval, interval, tolerance)).isPositive();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.bankcards.config.replica;
+
+import com.example.bankcards.security.JwtPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ReplicaDataSources replicas;
+    private ReadYourWrites readYourWrites;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+
+        replicas = new ReplicaDataSources(Map.of("replica-1", replica), 200);
+        readYourWrites = new ReadYourWrites(Duration.ofSeconds(30));
+        routing = new ReplicaRoutingDataSource(primary, replicas, readYourWrites, new SimpleMeterRegistry());
+        replicas.updateReplayLsn("replica-1", Lsn.parse("0/3000000"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+        SecurityContextHolder.clearContext();
+        readYourWrites.clearRequest();
+    }
+
+    private void inTransaction(String name, boolean readOnly) {
+        TransactionSynchronizationManager.setCurrentTransactionName(name);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private void authenticateAs(long userId) {
+        JwtPrincipal principal = new JwtPrincipal(userId, "user" + userId, "USER", "jti", Instant.now());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @Test
+    void getConnection_ShouldUseReplica_ForReadOnlyServiceMethod() throws Exception {
+        inTransaction("com.example.bankcards.service.TransferService.getTransfersByUser", true);
+
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void getConnection_ShouldUsePrimary_ForWriteTransaction() throws Exception {
+        inTransaction("com.example.bankcards.service.TransferService.transferBetweenOwnCards", false);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void getConnection_ShouldUsePrimary_ForRepositoryOwnReadOnlyTransaction() throws Exception {
+        inTransaction("org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById", true);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void getConnection_ShouldStickToPrimary_UntilReplicaReplaysUsersWrite() throws Exception {
+        authenticateAs(1L);
+        readYourWrites.recordWrite(Lsn.parse("0/3000100"));
+        inTransaction("com.example.bankcards.service.CardService.getAllCards", true);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+
+        replicas.updateReplayLsn("replica-1", Lsn.parse("0/3000100"));
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void getConnection_ShouldUseReplica_ForOtherUsers_AfterWrite() throws Exception {
+        authenticateAs(1L);
+        readYourWrites.recordWrite(Lsn.parse("0/3000100"));
+        readYourWrites.clearRequest();
+        authenticateAs(2L);
+        inTransaction("com.example.bankcards.service.CardService.getAllCards", true);
+
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void getConnection_ShouldHonourLsnFromRequestHeader() throws Exception {
+        readYourWrites.bindRequest("0/3000100");
+        inTransaction("com.example.bankcards.service.UserService.searchUsers", true);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void getConnection_ShouldUsePrimary_WhenReplicaNotPolled() throws Exception {
+        ReplicaDataSources unpolled = new ReplicaDataSources(Map.of("replica-1", mock(DataSource.class)), 200);
+        DataSource primary = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                primary, unpolled, readYourWrites, new SimpleMeterRegistry());
+        inTransaction("com.example.bankcards.service.CardService.getAllCards", true);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void lsn_ShouldRoundTripPostgresTextFormat() {
+        assertThat(Lsn.parse("16/B374D848")).isEqualTo((0x16L << 32) | 0xB374D848L);
+        assertThat(Lsn.format(Lsn.parse("16/B374D848"))).isEqualTo("16/B374D848");
+    }
+}
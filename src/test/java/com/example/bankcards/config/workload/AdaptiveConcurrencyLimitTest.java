@@ -0,0 +1,82 @@
+package com.example.bankcards.config.workload;
+
+import com.example.bankcards.config.workload.AdaptiveConcurrencyLimit.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private MeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimit limit;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // window-ms = 0: лимит пересчитывается на каждом десятом завершённом запросе
+        limit = new AdaptiveConcurrencyLimit(meterRegistry, 10, 2, 100, 0, 2.0, 0.9, 0.8, 0.5);
+    }
+
+    private int admit(Priority priority, int attempts) {
+        int admitted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limit.tryAcquire(priority)) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    private void completeWindow(long latencyMs) {
+        assertThat(admit(Priority.CRITICAL, 10)).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            limit.release(TimeUnit.MILLISECONDS.toNanos(latencyMs), false);
+        }
+    }
+
+    @Test
+    void tryAcquire_ShouldShedBulkBeforeNormalBeforeCritical() {
+        assertThat(admit(Priority.BULK, 10)).isEqualTo(5);
+        assertThat(admit(Priority.NORMAL, 10)).isEqualTo(3);
+        assertThat(admit(Priority.CRITICAL, 10)).isEqualTo(2);
+        assertThat(meterRegistry.counter("load_shedding.rejected", "priority", "bulk").count()).isEqualTo(5);
+        assertThat(meterRegistry.counter("load_shedding.rejected", "priority", "critical").count()).isEqualTo(8);
+    }
+
+    @Test
+    void release_ShouldGrowLimit_WhenUsedAndLatencyStable() {
+        completeWindow(1);
+        completeWindow(1);
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+        assertThat(meterRegistry.get("load_shedding.limit").gauge().value()).isEqualTo(limit.getLimit());
+    }
+
+    @Test
+    void release_ShouldBackOff_WhenLatencyExceedsBaseline() {
+        completeWindow(1);
+        int grown = limit.getLimit();
+
+        completeWindow(5);
+
+        assertThat(limit.getLimit()).isLessThan(grown);
+    }
+
+    @Test
+    void release_ShouldBackOff_WhenRequestsTimeOut() {
+        completeWindow(1);
+        int grown = limit.getLimit();
+
+        assertThat(admit(Priority.CRITICAL, 10)).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            limit.release(TimeUnit.MILLISECONDS.toNanos(1), i == 0);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(grown);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bankcards.config.workload;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkloadInterceptorTest {
+
+    @Workload(WorkloadClass.CARD_READ)
+    static class SampleController {
+        public void read() {
+        }
+
+        @Workload(WorkloadClass.HISTORY_READ)
+        public void history() {
+        }
+
+        @Workload(WorkloadClass.TRANSFER_WRITE)
+        public void transfer() {
+        }
+    }
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private MeterRegistry meterRegistry;
+    private WorkloadInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.workload.history-read.max-concurrent", "1")
+                .withProperty("app.workload.history-read.max-queue", "0")
+                .withProperty("app.workload.transfer-write.max-concurrent", "1");
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new WorkloadInterceptor(new WorkloadBulkheads(environment, meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        CurrentWorkload.clear();
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new SampleController(), SampleController.class.getMethod(name));
+    }
+
+    private double active(WorkloadClass workload) {
+        return meterRegistry.get("workload.active").tag("workload", workload.key()).gauge().value();
+    }
+
+    @Test
+    void preHandle_ShouldUseMethodAnnotationOverClassAnnotation() throws Exception {
+        interceptor.preHandle(new MockHttpServletRequest(), response, handler("history"));
+
+        assertThat(CurrentWorkload.get()).isEqualTo(WorkloadClass.HISTORY_READ);
+        assertThat(active(WorkloadClass.HISTORY_READ)).isEqualTo(1);
+        assertThat(active(WorkloadClass.CARD_READ)).isZero();
+    }
+
+    @Test
+    void preHandle_ShouldRejectHistory_WhenLimitReached_WithoutAffectingTransfers() throws Exception {
+        interceptor.preHandle(new MockHttpServletRequest(), response, handler("history"));
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> interceptor.preHandle(new MockHttpServletRequest(), response, handler("history")));
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, handler("transfer"))).isTrue();
+        assertThat(meterRegistry.counter("workload.rejected", "workload", "history-read").count()).isEqualTo(1);
+    }
+
+    @Test
+    void afterCompletion_ShouldReleaseOnce_AcrossAsyncDispatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        HandlerMethod history = handler("history");
+
+        interceptor.preHandle(request, response, history);
+        interceptor.afterConcurrentHandlingStarted(request, response, history);
+        assertThat(active(WorkloadClass.HISTORY_READ)).isZero();
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(request, response, history);
+        interceptor.afterCompletion(request, response, history, null);
+
+        assertThat(active(WorkloadClass.HISTORY_READ)).isZero();
+        assertThat(CurrentWorkload.get()).isNull();
+        // Освобождённое место снова доступно, но не удвоено
+        interceptor.preHandle(new MockHttpServletRequest(), response, history);
+        assertThrows(ServiceUnavailableException.class,
+                () -> interceptor.preHandle(new MockHttpServletRequest(), response, history));
+    }
+}
@@ -1,12 +1,27 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.dto.VersionMarker;
+import com.example.bankcards.dto.card.BulkBlockInput;
+import com.example.bankcards.dto.card.BulkCreateCardsInput;
+import com.example.bankcards.dto.card.BulkCreateCardsResponse;
+import com.example.bankcards.dto.card.CardSearchFilter;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
 import com.example.bankcards.dto.card.DepositInput;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.security.JwtPrincipal;
 import com.example.bankcards.security.JwtTokenProvider;
 import com.example.bankcards.security.OptionalUserIdArgumentResolver;
 import com.example.bankcards.service.CardService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,14 +30,28 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.LongConsumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,6 +76,8 @@ class CardControllerTest {
     private OptionalUserIdArgumentResolver optionalUserIdArgumentResolver;
 
     private final Card card = new Card();
+    private final CardView cardView = new CardView(1L, "encrypted", CardStatus.ACTIVE, BigDecimal.ZERO,
+            LocalDate.now().plusYears(1), false, 1L, "testuser", 0L);
 
     @BeforeEach
     void setup() {
@@ -64,6 +95,14 @@ class CardControllerTest {
                 });
         Mockito.when(optionalUserIdArgumentResolver.resolveArgument(any(), any(), any(), any()))
                 .thenReturn(1L);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new JwtPrincipal(1L, "testuser", "ROLE_USER", null, null), null, List.of()));
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
     }
 
     @Test
@@ -77,11 +116,25 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.data.maskedNumber").value("**** **** **** 1234"));
     }
 
+    @Test
+    void createCardsBulk_ShouldReturnSummary() throws Exception {
+        BulkCreateCardsInput input = new BulkCreateCardsInput(List.of(1L, 2L), 3);
+        when(cardService.createCardsForUsers(List.of(1L, 2L), 3))
+                .thenReturn(new BulkCreateCardsResponse(2, 6));
+
+        mockMvc.perform(post("/cards/create/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.usersCount").value(2))
+                .andExpect(jsonPath("$.data.cardsCreated").value(6));
+    }
+
     @Test
     void getCards_ShouldReturnPage() throws Exception {
         when(cardService.findCardsByUserId(anyLong(), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card)));
-        when(cardService.getMaskedNumber(card)).thenReturn("**** **** **** 1234");
+                .thenReturn(new PageImpl<>(List.of(cardView)));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
 
         mockMvc.perform(get("/cards/user"))
                 .andExpect(status().isOk())
@@ -90,8 +143,8 @@ class CardControllerTest {
 
     @Test
     void getCardById_ShouldReturnCard() throws Exception {
-        when(cardService.getCardByIdForUser(anyLong(), anyLong())).thenReturn(card);
-        when(cardService.getMaskedNumber(card)).thenReturn("**** **** **** 1234");
+        when(cardService.getCardByIdForUser(anyLong(), anyLong())).thenReturn(cardView);
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
 
         mockMvc.perform(get("/cards").param("cardId", "1"))
                 .andExpect(status().isOk())
@@ -118,6 +171,43 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.data.id").value(1));
     }
 
+    @Test
+    void approveAllBlocks_ShouldStreamProgress() throws Exception {
+        when(cardService.approveAllBlockRequests(any())).thenAnswer(invocation -> {
+            LongConsumer progress = invocation.getArgument(0);
+            progress.accept(1000);
+            progress.accept(1500);
+            return 1500L;
+        });
+
+        MvcResult result = mockMvc.perform(post("/cards/block/approve/all"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"data\":{\"operation\":\"approve-all-block-requests\",\"processed\":1000,\"completed\":false}}\n"
+                                + "{\"data\":{\"operation\":\"approve-all-block-requests\",\"processed\":1500,\"completed\":false}}\n"
+                                + "{\"data\":{\"operation\":\"approve-all-block-requests\",\"processed\":1500,\"completed\":true}}\n"));
+    }
+
+    @Test
+    void blockCards_ShouldStreamErrorLine_WhenOperationFails() throws Exception {
+        when(cardService.blockCards(any(), any())).thenThrow(new IllegalArgumentException("Card IDs are required"));
+
+        MvcResult result = mockMvc.perform(post("/cards/block/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkBlockInput(List.of()))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"message\":\"Card IDs are required\"}\n"));
+    }
+
     @Test
     void deleteCard_ShouldReturnSuccessMessage() throws Exception {
         mockMvc.perform(delete("/cards").param("cardId", "1"))
@@ -127,9 +217,9 @@ class CardControllerTest {
 
     @Test
     void getAllCards_ShouldReturnPage() throws Exception {
-        when(cardService.getAllCards(any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card)));
-        when(cardService.getMaskedNumber(card)).thenReturn("**** **** **** 1234");
+        when(cardService.getAllCards(any(Pageable.class), eq(CountMode.EXACT)))
+                .thenReturn(PageResponse.exact(new PageImpl<>(List.of(cardView))));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
 
         mockMvc.perform(get("/cards/all"))
                 .andExpect(status().isOk())
@@ -151,4 +241,127 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.data.id").value(1))
                 .andExpect(jsonPath("$.data.maskedNumber").value("**** **** **** 1234"));
     }
+
+    @Test
+    void depositToCard_ShouldReturn409_WhenCardModifiedConcurrently() throws Exception {
+        when(cardService.depositToCard(anyLong(), anyLong(), any(BigDecimal.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L));
+
+        mockMvc.perform(post("/cards/deposit")
+                        .param("cardId", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DepositInput(BigDecimal.TEN))))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void searchCards_ShouldBindFiltersAndReturnKeysetPage() throws Exception {
+        when(cardService.searchCards(any(CardSearchFilter.class), eq(CardSortKey.EXPIRY_DATE),
+                eq(Sort.Direction.DESC), isNull(), eq(20)))
+                .thenReturn(new KeysetPage<>(List.of(cardView), "next", true));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        mockMvc.perform(get("/cards/search")
+                        .param("status", "ACTIVE")
+                        .param("expiryFrom", "2030-01-01")
+                        .param("sort", "EXPIRY_DATE")
+                        .param("direction", "DESC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(1))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"))
+                .andExpect(jsonPath("$.data.hasNext").value(true));
+
+        verify(cardService).searchCards(eq(new CardSearchFilter(CardStatus.ACTIVE, LocalDate.of(2030, 1, 1),
+                null, null, null, null)), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void searchCards_ShouldRejectUnknownSortKey() throws Exception {
+        mockMvc.perform(get("/cards/search").param("sort", "NUMBER"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllCards_ShouldPassCountModeAndReportTotalKind() throws Exception {
+        when(cardService.getAllCards(any(Pageable.class), eq(CountMode.ESTIMATE)))
+                .thenReturn(PageResponse.estimated(new SliceImpl<>(List.of(cardView), PageRequest.of(0, 1), true), 500));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        mockMvc.perform(get("/cards/all").param("count", "estimate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.totalElements").value(500))
+                .andExpect(jsonPath("$.data.totalKind").value("ESTIMATE"));
+    }
+
+    @Test
+    void getCards_ShouldReturnCbor_WhenRequested() throws Exception {
+        when(cardService.findCardsByUserId(anyLong(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(cardView)));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        byte[] body = mockMvc.perform(get("/cards/user").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode tree = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(tree.at("/data/content/0/maskedNumber").asText()).isEqualTo("**** **** **** 1234");
+    }
+
+    @Test
+    void getCards_ShouldDefaultToJson() throws Exception {
+        when(cardService.findCardsByUserId(anyLong(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(cardView)));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        mockMvc.perform(get("/cards/user"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void getCards_ShouldReturn304WithoutListQuery_WhenEtagMatches() throws Exception {
+        when(cardService.getCardsVersion(1L)).thenReturn(new VersionMarker(1L, 1L, 0L));
+        when(cardService.findCardsByUserId(anyLong(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(cardView)));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        String etag = mockMvc.perform(get("/cards/user"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        clearInvocations(cardService);
+
+        mockMvc.perform(get("/cards/user").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        verify(cardService, never()).findCardsByUserId(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void getCards_ShouldChangeEtag_WhenCardUpdatedOrFormatDiffers() throws Exception {
+        when(cardService.getCardsVersion(1L)).thenReturn(new VersionMarker(1L, 1L, 0L));
+        when(cardService.findCardsByUserId(anyLong(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(cardView)));
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        String json = mockMvc.perform(get("/cards/user")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cbor = mockMvc.perform(get("/cards/user").accept("application/cbor"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        when(cardService.getCardsVersion(1L)).thenReturn(new VersionMarker(1L, 1L, 1L));
+        String updated = mockMvc.perform(get("/cards/user")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(json).isNotEqualTo(cbor).isNotEqualTo(updated);
+    }
+
+    @Test
+    void getCardById_ShouldReturn304_WhenVersionUnchanged() throws Exception {
+        when(cardService.getCardByIdForUser(anyLong(), anyLong())).thenReturn(cardView);
+        when(cardService.getMaskedNumber("encrypted")).thenReturn("**** **** **** 1234");
+
+        String etag = mockMvc.perform(get("/cards").param("cardId", "1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/cards").param("cardId", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
 }
@@ -0,0 +1,128 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.security.CurrentUserId;
+import com.example.bankcards.security.CurrentUserIdArgumentResolver;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.OptionalUserId;
+import com.example.bankcards.security.OptionalUserIdArgumentResolver;
+import com.example.bankcards.service.ReactiveReadService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ReactiveReadController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ReactiveReadControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReactiveReadService reactiveReadService;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private CurrentUserIdArgumentResolver currentUserIdArgumentResolver;
+
+    @MockBean
+    private OptionalUserIdArgumentResolver optionalUserIdArgumentResolver;
+
+    private final CardResponse card = new CardResponse(5L, "**** **** **** 1234", CardStatus.ACTIVE,
+            BigDecimal.TEN, LocalDate.now().plusYears(1), false, "john");
+
+    @BeforeEach
+    void setUp() {
+        when(currentUserIdArgumentResolver.supportsParameter(any())).thenAnswer(inv ->
+                inv.getArgument(0, MethodParameter.class).hasParameterAnnotation(CurrentUserId.class));
+        when(currentUserIdArgumentResolver.resolveArgument(any(), any(), any(), any())).thenReturn(1L);
+        when(optionalUserIdArgumentResolver.supportsParameter(any())).thenAnswer(inv ->
+                inv.getArgument(0, MethodParameter.class).hasParameterAnnotation(OptionalUserId.class));
+        when(optionalUserIdArgumentResolver.resolveArgument(any(), any(), any(), any())).thenReturn(1L);
+    }
+
+    @Test
+    void getCards_ShouldStreamNdjson() throws Exception {
+        CardResponse second = new CardResponse(6L, "**** **** **** 5678", CardStatus.BLOCKED,
+                BigDecimal.ZERO, LocalDate.now().plusYears(1), false, "john");
+        when(reactiveReadService.getUserCards(1L, null, 4L, 2)).thenReturn(Flux.just(card, second));
+
+        MvcResult pending = mockMvc.perform(get("/reactive/cards/user").param("afterId", "4").param("size", "2")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body.lines()).hasSize(2);
+        assertThat(body.lines().findFirst().orElseThrow()).contains("\"id\":5").contains("\"maskedNumber\"");
+    }
+
+    @Test
+    void getCardById_ShouldWrapInApiResult() throws Exception {
+        when(reactiveReadService.getCard(5L, 1L)).thenReturn(Mono.just(card));
+
+        MvcResult pending = mockMvc.perform(get("/reactive/cards").param("cardId", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(5))
+                .andExpect(jsonPath("$.data.userUsername").value("john"));
+    }
+
+    @Test
+    void getCardById_ShouldReturnNotFound_WhenNotOwned() throws Exception {
+        when(reactiveReadService.getCard(9L, 1L))
+                .thenReturn(Mono.error(new NotFoundException("Card not found or access denied")));
+
+        MvcResult pending = mockMvc.perform(get("/reactive/cards").param("cardId", "9"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getTransfersByCard_ShouldStreamForCurrentUser() throws Exception {
+        TransferResponse transfer = new TransferResponse(3L, 5L, 6L, BigDecimal.ONE, LocalDateTime.now());
+        when(reactiveReadService.getTransfersByCard(5L, 1L, null, 100)).thenReturn(Flux.just(transfer));
+
+        MvcResult pending = mockMvc.perform(get("/reactive/transfers/history/card").param("cardId", "5")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("\"fromCardId\":5")));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.VersionMarker;
 import com.example.bankcards.dto.transfer.TransferInput;
 import com.example.bankcards.dto.transfer.TransferResponse;
 import com.example.bankcards.security.CurrentUserIdArgumentResolver;
@@ -15,6 +16,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -26,6 +28,9 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -103,4 +108,36 @@ class TransferControllerTest {
                 .andExpect(jsonPath("$.data.content[0].id").value(1))
                 .andExpect(jsonPath("$.data.content[0].amount").value(100.00));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTransfersByUser_ShouldReturn304_WhenHistoryUnchanged() throws Exception {
+        Mockito.when(transferService.getTransfersVersionByUser(1L)).thenReturn(new VersionMarker(3L, 42L, 0L));
+        Mockito.when(transferService.getTransfersByUser(eq(1L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(response)));
+
+        String etag = mockMvc.perform(get("/transfers/history/user"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Mockito.clearInvocations(transferService);
+
+        mockMvc.perform(get("/transfers/history/user").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        verify(transferService, never()).getTransfersByUser(any(), any());
+    }
+
+    @Test
+    void getTransfersByCard_ShouldReturnFreshPage_WhenNewTransferAdded() throws Exception {
+        Mockito.when(transferService.getTransfersVersionByCard(10L)).thenReturn(new VersionMarker(3L, 42L, 0L));
+        Mockito.when(transferService.getTransfersByCard(eq(10L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(response)));
+
+        String etag = mockMvc.perform(get("/transfers/history/card").param("cardId", "10"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Mockito.when(transferService.getTransfersVersionByCard(10L)).thenReturn(new VersionMarker(4L, 43L, 0L));
+
+        mockMvc.perform(get("/transfers/history/card").param("cardId", "10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(1));
+    }
+}
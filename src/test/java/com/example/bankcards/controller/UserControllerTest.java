@@ -1,12 +1,26 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.auth.AuthRequest;
+import com.example.bankcards.dto.auth.AuthResponse;
+import com.example.bankcards.dto.auth.RefreshTokenInput;
 import com.example.bankcards.dto.user.CreateUserInput;
+import com.example.bankcards.dto.user.UserDeletionJobResponse;
+import com.example.bankcards.dto.user.UserImportFailure;
+import com.example.bankcards.dto.user.UserImportFormat;
+import com.example.bankcards.dto.user.UserImportProgress;
 import com.example.bankcards.dto.user.UserResponse;
+import com.example.bankcards.dto.user.UserView;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
-import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.entity.UserDeletionStatus;
+import com.example.bankcards.exception.ServiceUnavailableException;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.service.RefreshTokenService;
+import com.example.bankcards.service.UserImportService;
 import com.example.bankcards.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -19,13 +33,17 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,7 +65,10 @@ class UserControllerTest {
     private AuthenticationManager authenticationManager;
 
     @MockBean
-    private JwtTokenProvider jwtTokenProvider;
+    private RefreshTokenService refreshTokenService;
+
+    @MockBean
+    private UserImportService userImportService;
 
     @Test
     void register_ShouldReturnUserResponse() throws Exception {
@@ -70,21 +91,53 @@ class UserControllerTest {
         AuthRequest request = new AuthRequest("john@mail.com", "123456");
         Authentication auth = new UsernamePasswordAuthenticationToken("john@mail.com", "123456");
         when(authenticationManager.authenticate(any())).thenReturn(auth);
-        when(jwtTokenProvider.generateToken(auth)).thenReturn("token123");
+        when(refreshTokenService.issueTokens(auth)).thenReturn(new AuthResponse("token123", "refresh123"));
 
         mockMvc.perform(post("/user/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.data.token").value("token123"));
+                .andExpect(jsonPath("$.data.token").value("token123"))
+                .andExpect(jsonPath("$.data.refreshToken").value("refresh123"));
+    }
+
+    @Test
+    void login_ShouldReturn503WithRetryAfter_WhenHashingPoolIsSaturated() throws Exception {
+        when(authenticationManager.authenticate(any()))
+                .thenThrow(new ServiceUnavailableException("Password hashing is overloaded, retry later", 2));
+
+        mockMvc.perform(post("/user/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AuthRequest("john@mail.com", "123456"))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+
+    @Test
+    void refreshToken_ShouldReturnNewTokenPair() throws Exception {
+        when(refreshTokenService.refresh("refresh123")).thenReturn(new AuthResponse("token456", "refresh456"));
+
+        mockMvc.perform(post("/user/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenInput("refresh123"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.token").value("token456"))
+                .andExpect(jsonPath("$.data.refreshToken").value("refresh456"));
+    }
+
+    @Test
+    void refreshToken_ShouldReturn401_WhenTokenRejected() throws Exception {
+        when(refreshTokenService.refresh("stale")).thenThrow(new UnauthorizedException("Refresh token has already been used"));
+
+        mockMvc.perform(post("/user/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenInput("stale"))))
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
     void getUserById_ShouldReturnUser() throws Exception {
-        User user = new User();
-        user.setUsername("john");
-        user.setEmail("john@mail.com");
-        user.setRole(Role.USER);
+        UserView user = new UserView(1L, "john", "john@mail.com", Role.USER);
         when(userService.findById(1L)).thenReturn(Optional.of(user));
 
         mockMvc.perform(get("/user").param("id", "1"))
@@ -96,10 +149,7 @@ class UserControllerTest {
 
     @Test
     void getUserByUsername_ShouldReturnUser() throws Exception {
-        User user = new User();
-        user.setUsername("john");
-        user.setEmail("john@mail.com");
-        user.setRole(Role.USER);
+        UserView user = new UserView(1L, "john", "john@mail.com", Role.USER);
         when(userService.findByUsername("john")).thenReturn(Optional.of(user));
 
         mockMvc.perform(get("/user/by-username").param("username", "john"))
@@ -111,10 +161,7 @@ class UserControllerTest {
 
     @Test
     void getUserByEmail_ShouldReturnUser() throws Exception {
-        User user = new User();
-        user.setUsername("john");
-        user.setEmail("john@mail.com");
-        user.setRole(Role.USER);
+        UserView user = new UserView(1L, "john", "john@mail.com", Role.USER);
         when(userService.findByEmail("john@mail.com")).thenReturn(Optional.of(user));
 
         mockMvc.perform(get("/user/by-email").param("email", "john@mail.com"))
@@ -125,10 +172,69 @@ class UserControllerTest {
     }
 
     @Test
-    void deleteUser_ShouldReturnSuccess() throws Exception {
+    void importUsers_ShouldStreamProgress() throws Exception {
+        when(userImportService.importUsers(any(), eq(UserImportFormat.CSV), any())).thenAnswer(invocation -> {
+            Consumer<UserImportProgress> progress = invocation.getArgument(2);
+            UserImportProgress done = new UserImportProgress(2, 1, List.of(new UserImportFailure(3, "Email already taken")), true);
+            progress.accept(done);
+            return done;
+        });
+
+        MvcResult result = mockMvc.perform(post("/user/import")
+                        .contentType("text/csv")
+                        .content("email,username,password\na@mail.com,a,secret\nb@mail.com,b,secret\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"data\":{\"processed\":2,\"imported\":1,"
+                        + "\"failures\":[{\"line\":3,\"error\":\"Email already taken\"}],\"completed\":true}}\n"));
+    }
+
+    @Test
+    void searchUsers_ShouldReturnKeysetPage() throws Exception {
+        when(userService.searchUsers("john", null, 20)).thenReturn(
+                new KeysetPage<>(List.of(new UserView(5L, "john", "john@mail.com", Role.USER)), "5", true));
+
+        mockMvc.perform(get("/user/search").param("q", "john"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].username").value("john"))
+                .andExpect(jsonPath("$.data.nextCursor").value("5"))
+                .andExpect(jsonPath("$.data.hasNext").value(true));
+    }
+
+    @Test
+    void changeRole_ShouldReturnUpdatedUser() throws Exception {
+        when(userService.changeRole(1L, Role.ADMIN))
+                .thenReturn(new UserView(1L, "john", "john@mail.com", Role.ADMIN));
+
+        mockMvc.perform(put("/user/role").param("id", "1").param("role", "ADMIN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.role").value("ADMIN"));
+    }
+
+    @Test
+    void deleteUser_ShouldReturnDeletionJob() throws Exception {
+        when(userService.deleteUser(1L)).thenReturn(new UserDeletionJobResponse(7L, 1L,
+                UserDeletionStatus.PENDING, 0, null, LocalDateTime.now(), null, null));
+
         mockMvc.perform(delete("/user").param("id", "1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.data").doesNotExist());
+                .andExpect(jsonPath("$.data.id").value(7))
+                .andExpect(jsonPath("$.data.status").value("PENDING"));
+    }
+
+    @Test
+    void getDeletionJob_ShouldReturnProgress() throws Exception {
+        when(userService.getDeletionJob(7L)).thenReturn(new UserDeletionJobResponse(7L, 1L,
+                UserDeletionStatus.RUNNING, 2000, null, LocalDateTime.now(), LocalDateTime.now(), null));
+
+        mockMvc.perform(get("/user/deletion-job").param("id", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("RUNNING"))
+                .andExpect(jsonPath("$.data.cardsDeleted").value(2000));
     }
 
     @Test
@@ -138,8 +244,8 @@ class UserControllerTest {
         user.setEmail("john@mail.com");
         user.setRole(Role.USER);
 
-        when(userService.getAllUsers(any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(user)));
+        when(userService.getAllUsers(any(Pageable.class), eq(CountMode.EXACT)))
+                .thenReturn(PageResponse.exact(new PageImpl<>(List.of(user))));
 
         mockMvc.perform(get("/user/all"))
                 .andExpect(status().isOk())
@@ -0,0 +1,63 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Сравнение JSON, CBOR и Smile на странице из 100 карт: размер ответа и совпадение дерева после разбора
+class BinaryFormatSerializationTest {
+
+    private final ObjectMapper json = mapper(new JsonFactory());
+    private final ObjectMapper cbor = mapper(new CBORFactory());
+    private final ObjectMapper smile = mapper(new SmileFactory());
+
+    private final Object response = new ApiResult.Success<>(PageResponse.exact(new PageImpl<>(
+            LongStream.rangeClosed(1, 100)
+                    .mapToObj(id -> new CardResponse(id, "**** **** **** " + (1000 + id), CardStatus.ACTIVE,
+                            BigDecimal.valueOf(id * 100, 2), LocalDate.of(2030, 1, 1), false, "user" + id))
+                    .toList(),
+            PageRequest.of(0, 100),
+            10_000)));
+
+    @Test
+    void binaryFormats_ShouldBeSmallerThanJson() throws Exception {
+        int jsonBytes = json.writeValueAsBytes(response).length;
+        int cborBytes = cbor.writeValueAsBytes(response).length;
+        int smileBytes = smile.writeValueAsBytes(response).length;
+
+        assertThat(cborBytes).isLessThan(jsonBytes);
+        assertThat(smileBytes).isLessThan(jsonBytes);
+    }
+
+    @Test
+    void binaryFormats_ShouldRoundTripSameTree() throws Exception {
+        JsonNode expected = json.readTree(json.writeValueAsBytes(response));
+
+        assertThat(cbor.readTree(cbor.writeValueAsBytes(response))).isEqualTo(expected);
+        assertThat(smile.readTree(smile.writeValueAsBytes(response))).isEqualTo(expected);
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .featuresToEnable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Сравнение PageImpl и PageResponse на типичной странице из 20 карт по размеру ответа
+class PageResponseSerializationTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .registerModule(new BlackbirdModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Page<CardResponse> page = new PageImpl<>(
+            LongStream.rangeClosed(1, 20)
+                    .mapToObj(id -> new CardResponse(id, "**** **** **** " + (1000 + id), CardStatus.ACTIVE,
+                            BigDecimal.valueOf(id * 100, 2), LocalDate.of(2030, 1, 1), false, "user" + id))
+                    .toList(),
+            PageRequest.of(3, 20, Sort.by("id")),
+            10_000);
+
+    @Test
+    void pageResponse_ShouldBeSmallerThanPageImpl() throws Exception {
+        byte[] pageImpl = objectMapper.writeValueAsBytes(new ApiResult.Success<>(page));
+        byte[] compact = objectMapper.writeValueAsBytes(new ApiResult.Success<>(PageResponse.exact(page)));
+
+        assertThat(compact.length).isLessThan(pageImpl.length);
+        assertThat(pageImpl.length - compact.length).isGreaterThan(200);
+    }
+
+    @Test
+    void uncountedPage_ShouldOmitTotals() throws Exception {
+        String json = objectMapper.writeValueAsString(PageResponse.uncounted(page));
+
+        assertThat(json).doesNotContain("totalElements").doesNotContain("totalPages").contains("\"totalKind\":\"NONE\"");
+    }
+}
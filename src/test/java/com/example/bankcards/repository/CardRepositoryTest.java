@@ -0,0 +1,185 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.VersionMarker;
+import com.example.bankcards.dto.card.CardSearchCursor;
+import com.example.bankcards.dto.card.CardSearchFilter;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CardRepositoryTest {
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("owner");
+        User other = persistUser("other");
+        for (int i = 0; i < 5; i++) {
+            persistCard(owner, "owner-" + i);
+            persistCard(other, "other-" + i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findViewsByUserId_ShouldUseContentAndCountQueriesOnly() {
+        Statistics statistics = statistics();
+
+        Page<CardView> page = cardRepository.findViewsByUserId(owner.getId(), PageRequest.of(0, 3));
+
+        assertThat(page.getContent()).hasSize(3)
+                .allSatisfy(view -> assertThat(view.userUsername()).isEqualTo("owner"));
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findAllViews_ShouldNotLoadUsersPerRow() {
+        Statistics statistics = statistics();
+
+        Page<CardView> page = cardRepository.findAllViews(PageRequest.of(0, 20));
+
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.getContent()).extracting(CardView::userUsername).containsOnly("owner", "other");
+        // Страница неполная - count-запрос не нужен
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findAllViews_ShouldCountOnlyCardsOfActiveOwners() {
+        entityManager.createNativeQuery("UPDATE users SET deleted_at = CURRENT_TIMESTAMP WHERE username = 'other'")
+                .executeUpdate();
+        entityManager.createNativeQuery("UPDATE cards SET user_id = NULL WHERE number = 'owner-0'")
+                .executeUpdate();
+
+        Page<CardView> page = cardRepository.findAllViews(PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).extracting(CardView::userUsername).containsOnly("owner");
+        assertThat(page.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    void findViewsByUserIdAndNumberContaining_ShouldFilterByNumber() {
+        Page<CardView> page = cardRepository.findViewsByUserIdAndNumberContaining(
+                owner.getId(), "owner-3", PageRequest.of(0, 10));
+
+        assertThat(page.getContent()).singleElement()
+                .extracting(CardView::number).isEqualTo("owner-3");
+    }
+
+    @Test
+    void findViewByIdAndUserId_ShouldReturnOwnCardOnly() {
+        CardView own = cardRepository.findViewsByUserId(owner.getId(), PageRequest.of(0, 1)).getContent().get(0);
+
+        assertThat(cardRepository.findViewByIdAndUserId(own.id(), owner.getId()))
+                .hasValueSatisfying(view -> assertThat(view.version()).isNotNull());
+        assertThat(cardRepository.findViewByIdAndUserId(own.id(), owner.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    void searchViews_ShouldWalkAllPagesWithoutGapsOrDuplicates_WhenSortKeyHasTies() {
+        List<Long> seen = new ArrayList<>();
+        CardSearchCursor after = null;
+        List<CardView> page;
+        do {
+            page = cardRepository.searchViews(null, CardSortKey.BALANCE, Sort.Direction.DESC, after, 3);
+            page.forEach(view -> seen.add(view.id()));
+            if (!page.isEmpty()) {
+                after = CardSearchCursor.after(page.get(page.size() - 1), CardSortKey.BALANCE, Sort.Direction.DESC);
+            }
+        } while (page.size() == 3);
+
+        assertThat(seen).hasSize(10).doesNotHaveDuplicates().isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void searchViews_ShouldApplyFilters() {
+        CardSearchFilter filter = new CardSearchFilter(CardStatus.ACTIVE, null, null,
+                BigDecimal.ZERO, null, owner.getId());
+
+        List<CardView> found = cardRepository.searchViews(CardSpecifications.matching(filter),
+                CardSortKey.EXPIRY_DATE, Sort.Direction.ASC, null, 20);
+
+        assertThat(found).hasSize(5).allSatisfy(view -> assertThat(view.userId()).isEqualTo(owner.getId()));
+    }
+
+    @Test
+    void findVersionMarkerByUserId_ShouldChange_WhenCardUpdated() {
+        VersionMarker before = cardRepository.findVersionMarkerByUserId(owner.getId());
+        Card card = cardRepository.findViewsByUserId(owner.getId(), PageRequest.of(0, 1)).getContent().stream()
+                .map(view -> cardRepository.findById(view.id()).orElseThrow())
+                .findFirst().orElseThrow();
+
+        card.setBalance(BigDecimal.TEN);
+        entityManager.flush();
+        VersionMarker after = cardRepository.findVersionMarkerByUserId(owner.getId());
+
+        assertThat(before.count()).isEqualTo(5);
+        assertThat(after.count()).isEqualTo(before.count());
+        assertThat(after.versionSum()).isEqualTo(before.versionSum() + 1);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private User persistUser(String username) {
+        User user = new User()
+                .setUsername(username)
+                .setEmail(username + "@example.com")
+                .setPassword("hash")
+                .setRole(Role.USER);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void persistCard(User user, String number) {
+        entityManager.persist(new Card()
+                .setUser(user)
+                .setNumber(number)
+                .setStatus(CardStatus.ACTIVE)
+                .setBalance(BigDecimal.ZERO)
+                .setExpiryDate(LocalDate.now().plusYears(1)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.liquibase.enabled=false")
+class TransferRepositoryTest {
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Card card;
+    private final List<Long> cardHistory = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User()
+                .setUsername("owner")
+                .setEmail("owner@example.com")
+                .setPassword("hash")
+                .setRole(Role.USER);
+        entityManager.persist(owner);
+        card = persistCard(owner, "1");
+        Card other = persistCard(owner, "2");
+        Card unrelated = persistCard(owner, "3");
+
+        for (int i = 0; i < 4; i++) {
+            cardHistory.add(persistTransfer(card, other));
+            cardHistory.add(persistTransfer(other, card));
+            persistTransfer(other, unrelated);
+        }
+        // Перевод на ту же карту попадает в обе ветки UNION, но должен вернуться один раз
+        cardHistory.add(persistTransfer(card, card));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findPageByCardId_ShouldReturnBothDirectionsNewestFirst() {
+        List<Long> expected = new ArrayList<>(cardHistory);
+        Collections.reverse(expected);
+
+        List<Transfer> first = transferRepository.findPageByCardId(card.getId(), 4, 4, 0);
+        List<Transfer> second = transferRepository.findPageByCardId(card.getId(), 8, 4, 4);
+
+        assertThat(first).extracting(Transfer::getId).containsExactlyElementsOf(expected.subList(0, 4));
+        assertThat(second).extracting(Transfer::getId).containsExactlyElementsOf(expected.subList(4, 8));
+        assertThat(transferRepository.countByCardId(card.getId())).isEqualTo(cardHistory.size());
+    }
+
+    @Test
+    void findPageByCardId_ShouldOrderByDateNotId() {
+        // Узел с более ранним блоком ID записал перевод позже остальных
+        Long late = cardHistory.get(0);
+        entityManager.find(Transfer.class, late).setTransferDate(LocalDateTime.now().plusMinutes(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Transfer> first = transferRepository.findPageByCardId(card.getId(), 2, 2, 0);
+
+        assertThat(first).extracting(Transfer::getId)
+                .containsExactly(late, cardHistory.get(cardHistory.size() - 1));
+    }
+
+    private Card persistCard(User user, String number) {
+        Card card = new Card()
+                .setUser(user)
+                .setNumber(number)
+                .setStatus(CardStatus.ACTIVE)
+                .setBalance(BigDecimal.ZERO)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+        entityManager.persist(card);
+        return card;
+    }
+
+    private Long persistTransfer(Card from, Card to) {
+        Transfer transfer = new Transfer()
+                .setFromCard(from)
+                .setToCard(to)
+                .setAmount(BigDecimal.ONE);
+        entityManager.persist(transfer);
+        return transfer.getId();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.user.UserView;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        persistUser("alice", "alice@bank.com");
+        persistUser("malice", "m@other.org");
+        persistUser("bob", "bob@alice.net");
+        persistUser("carol", "carol@bank.com");
+        persistUser("a_l_ice", "x@bank.com");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void searchViews_ShouldMatchSubstringOfUsernameOrEmailCaseInsensitively() {
+        List<UserView> found = userRepository.searchViews("%ALIC%", 0, Limit.of(10));
+
+        assertThat(found).extracting(UserView::username).containsExactly("alice", "malice", "bob");
+    }
+
+    @Test
+    void searchViews_ShouldContinueAfterCursorAndRespectLimit() {
+        List<UserView> first = userRepository.searchViews("%alic%", 0, Limit.of(2));
+        List<UserView> second = userRepository.searchViews("%alic%", first.get(1).id(), Limit.of(2));
+
+        assertThat(first).extracting(UserView::username).containsExactly("alice", "malice");
+        assertThat(second).extracting(UserView::username).containsExactly("bob");
+    }
+
+    @Test
+    void searchViews_ShouldTreatWildcardsInQueryLiterally() {
+        List<UserView> found = userRepository.searchViews("%a\\_l\\_%", 0, Limit.of(10));
+
+        assertThat(found).extracting(UserView::username).containsExactly("a_l_ice");
+    }
+
+    @Test
+    void searchViews_ShouldNotLoadEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        userRepository.searchViews("%bank%", 0, Limit.of(10));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void softDelete_ShouldHideUserFromAllQueries() {
+        Long id = userRepository.findByUsername("carol").orElseThrow().getId();
+
+        assertThat(userRepository.softDelete(id)).isEqualTo(1);
+        entityManager.clear();
+
+        assertThat(userRepository.findById(id)).isEmpty();
+        assertThat(userRepository.findByEmail("carol@bank.com")).isEmpty();
+        assertThat(userRepository.searchViews("%carol%", 0, Limit.of(10))).isEmpty();
+        assertThat(userRepository.findAll()).hasSize(4);
+        assertThat(userRepository.softDelete(id)).isZero();
+    }
+
+    @Test
+    void purgeSoftDeleted_ShouldRemoveOnlySoftDeletedUsers() {
+        Long carol = userRepository.findByUsername("carol").orElseThrow().getId();
+        Long bob = userRepository.findByUsername("bob").orElseThrow().getId();
+        userRepository.softDelete(carol);
+
+        assertThat(userRepository.purgeSoftDeleted(bob)).isZero();
+        assertThat(userRepository.purgeSoftDeleted(carol)).isEqualTo(1);
+        entityManager.clear();
+        assertThat(userRepository.findById(bob)).isPresent();
+    }
+
+    private void persistUser(String username, String email) {
+        entityManager.persist(new User()
+                .setUsername(username)
+                .setEmail(email)
+                .setPassword("hash")
+                .setRole(Role.USER));
+    }
+}
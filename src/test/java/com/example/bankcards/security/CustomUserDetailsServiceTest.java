@@ -0,0 +1,69 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CustomUserDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private CustomUserDetailsService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        UserCache userCache = new UserCache(meterRegistry, 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        service = new CustomUserDetailsService(userRepository, userCache);
+        user = new User().setId(1L).setEmail("john@mail.com").setUsername("john").setPassword("hash").setRole(Role.USER);
+    }
+
+    @Test
+    void loadUserByUsername_ShouldServeRepeatedLoginsFromCache() {
+        when(userRepository.findByEmail("john@mail.com")).thenReturn(Optional.of(user));
+
+        service.loadUserByUsername("john@mail.com");
+        UserDetails details = service.loadUserByUsername("john@mail.com");
+
+        assertThat(details.getPassword()).isEqualTo("hash");
+        verify(userRepository, times(1)).findByEmail("john@mail.com");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "users.auth").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void loadUserByUsername_ShouldThrowAndNotCache_WhenUserMissing() {
+        when(userRepository.findByEmail("ghost@mail.com")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.loadUserByUsername("ghost@mail.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> service.loadUserByUsername("ghost@mail.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        verify(userRepository, times(2)).findByEmail("ghost@mail.com");
+    }
+
+    @Test
+    void updatePassword_ShouldEvictCachedHash() {
+        when(userRepository.findByEmail("john@mail.com")).thenReturn(Optional.of(user));
+        UserDetails details = service.loadUserByUsername("john@mail.com");
+
+        service.updatePassword(details, "rehashed");
+
+        assertThat(service.loadUserByUsername("john@mail.com").getPassword()).isEqualTo("rehashed");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashingPoolPasswordEncoderTest {
+
+    @Test
+    void matches_ShouldRunBCryptOnHashingPool() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                thread.set(Thread.currentThread().getName());
+                return super.matches(rawPassword, encodedPassword);
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HashingPoolPasswordEncoder encoder = new HashingPoolPasswordEncoder(bcrypt,
+                new PasswordHashingExecutor(meterRegistry, 1, 4, 1));
+
+        assertThat(encoder.matches("secret", bcrypt.encode("secret"))).isTrue();
+        assertThat(thread.get()).startsWith("password-hashing-");
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "login").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void upgradeEncoding_ShouldDetectWeakerHashes() {
+        HashingPoolPasswordEncoder encoder = new HashingPoolPasswordEncoder(new BCryptPasswordEncoder(6),
+                new PasswordHashingExecutor(new SimpleMeterRegistry(), 1, 4, 1));
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+    }
+}
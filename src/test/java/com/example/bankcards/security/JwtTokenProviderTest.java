@@ -0,0 +1,107 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, true, 100, meterRegistry);
+
+    @Test
+    void getAuthentication_ShouldCarryClaimsInPrincipal() {
+        String token = provider.generateToken(login(7L, "john@mail.com", "ROLE_ADMIN"));
+
+        Authentication authentication = provider.getAuthentication(token);
+
+        JwtPrincipal principal = (JwtPrincipal) authentication.getPrincipal();
+        assertThat(principal.userId()).isEqualTo(7L);
+        assertThat(principal.username()).isEqualTo("john@mail.com");
+        assertThat(principal.role()).isEqualTo("ROLE_ADMIN");
+        assertThat(principal.tokenId()).isNotBlank();
+        assertThat(principal.issuedAt()).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("john@mail.com");
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void generateToken_ShouldAssignDistinctTokenIds() {
+        String first = provider.generateToken(7L, "john@mail.com", "ROLE_USER");
+        String second = provider.generateToken(7L, "john@mail.com", "ROLE_USER");
+
+        assertThat(((JwtPrincipal) provider.getAuthentication(first).getPrincipal()).tokenId())
+                .isNotEqualTo(((JwtPrincipal) provider.getAuthentication(second).getPrincipal()).tokenId());
+    }
+
+    @Test
+    void getAuthentication_ShouldReject_WhenSignedWithAnotherKey() {
+        JwtTokenProvider other = new JwtTokenProvider(SECRET.replace('0', 'f'), 60_000, true, 100, new SimpleMeterRegistry());
+        String token = other.generateToken(login(7L, "john@mail.com", "ROLE_USER"));
+
+        assertThatThrownBy(() -> provider.getAuthentication(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void getAuthentication_ShouldReject_WhenExpired() {
+        JwtTokenProvider expiring = new JwtTokenProvider(SECRET, -1_000, true, 100, new SimpleMeterRegistry());
+        String token = expiring.generateToken(login(7L, "john@mail.com", "ROLE_USER"));
+
+        assertThatThrownBy(() -> provider.getAuthentication(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void getAuthentication_ShouldVerifySignatureOnce_WhenTokenReused() {
+        String token = provider.generateToken(login(7L, "john@mail.com", "ROLE_USER"));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(provider.getAuthentication(token).getName()).isEqualTo("john@mail.com");
+        }
+
+        assertThat(meterRegistry.timer("jwt.verification").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt.verified-tokens").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(4);
+    }
+
+    @Test
+    void getAuthentication_ShouldVerifyEveryCall_WhenCacheDisabled() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JwtTokenProvider uncached = new JwtTokenProvider(SECRET, 60_000, false, 100, registry);
+        String token = uncached.generateToken(login(7L, "john@mail.com", "ROLE_USER"));
+
+        uncached.getAuthentication(token);
+        uncached.getAuthentication(token);
+
+        assertThat(registry.timer("jwt.verification").count()).isEqualTo(2);
+    }
+
+    @Test
+    void getAuthentication_ShouldNotCacheForgedTokens() {
+        JwtTokenProvider other = new JwtTokenProvider(SECRET.replace('0', 'f'), 60_000, true, 100, new SimpleMeterRegistry());
+        String forged = other.generateToken(login(7L, "john@mail.com", "ROLE_ADMIN"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> provider.getAuthentication(forged)).isInstanceOf(JwtException.class);
+        }
+
+        assertThat(meterRegistry.timer("jwt.verification").count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "jwt.verified-tokens").gauge().value()).isZero();
+    }
+
+    private Authentication login(Long id, String email, String role) {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(role));
+        CustomUserDetails details = new CustomUserDetails(id, email, "hash", authorities);
+        return new UsernamePasswordAuthenticationToken(details, null, authorities);
+    }
+}
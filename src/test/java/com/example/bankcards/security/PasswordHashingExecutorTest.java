@@ -0,0 +1,64 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(meterRegistry, 1, 1, 3);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_ShouldRejectFast_WhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit("login", () -> await(release));
+        CompletableFuture<Boolean> queued = executor.submit("login", () -> true);
+
+        assertThatThrownBy(() -> executor.submit("login", () -> true))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .extracting(ex -> ((ServiceUnavailableException) ex).getRetryAfterSeconds())
+                .isEqualTo(3L);
+
+        release.countDown();
+        assertThat(running.get()).isTrue();
+        assertThat(queued.get()).isTrue();
+        assertThat(meterRegistry.counter("password.hashing.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_ShouldRecordLatencyAndRethrowTaskException() {
+        assertThat(executor.call("register", () -> "hash")).isEqualTo("hash");
+        assertThatThrownBy(() -> executor.call("login", () -> {
+            throw new IllegalStateException("bad credentials");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "register").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "login").tag("outcome", "error")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("executor.queue.remaining").tag("name", "password-hashing").gauge().value())
+                .isEqualTo(1);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            latch.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
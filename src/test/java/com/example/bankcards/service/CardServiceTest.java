@@ -1,25 +1,47 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.dto.VersionMarker;
+import com.example.bankcards.dto.card.BulkCreateCardsResponse;
+import com.example.bankcards.dto.card.CardSearchCursor;
+import com.example.bankcards.dto.card.CardSearchFilter;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.card.CardView;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TableStatsRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardCryptoUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,16 +55,28 @@ class CardServiceTest {
     private UserRepository userRepository;
     @Mock
     private CardCryptoUtil cryptoUtil;
+    @Mock
+    private EntityManager entityManager;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Mock
+    private JobLeaseService jobLeaseService;
+    @Mock
+    private TableStatsRepository tableStatsRepository;
+    @Spy
+    private CardCache cardCache = new CardCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
 
     @InjectMocks
     private CardService cardService;
 
     private User testUser;
     private Card testCard;
+    private CardView testView;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(cardService, "expirySweepEnabled", true);
         testUser = new User();
         testUser.setId(1L);
 
@@ -53,6 +87,9 @@ class CardServiceTest {
         testCard.setBalance(BigDecimal.ZERO);
         testCard.setStatus(CardStatus.ACTIVE);
         testCard.setExpiryDate(LocalDate.now().plusYears(1));
+
+        testView = new CardView(1L, "encrypted", CardStatus.ACTIVE, BigDecimal.ZERO,
+                testCard.getExpiryDate(), false, 1L, "user", 0L);
     }
 
     @Test
@@ -77,48 +114,159 @@ class CardServiceTest {
                 .isInstanceOf(NotFoundException.class);
     }
 
+    @Test
+    void createCardsForUsers_ShouldSaveInChunks() {
+        User second = new User();
+        second.setId(2L);
+        ReflectionTestUtils.setField(cardService, "bulkChunkSize", 4);
+        ReflectionTestUtils.setField(cardService, "bulkMaxCards", 100);
+        when(userRepository.findAllById(any())).thenReturn(List.of(testUser, second));
+        when(cryptoUtil.encrypt(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        when(cardRepository.findExistingNumbers(anyCollection())).thenReturn(List.of());
+
+        BulkCreateCardsResponse response = cardService.createCardsForUsers(List.of(1L, 2L, 1L), 5);
+
+        assertThat(response.usersCount()).isEqualTo(2);
+        assertThat(response.cardsCreated()).isEqualTo(10);
+        verify(cardRepository, times(3)).saveAll(anyList());
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void createCardsForUsers_ShouldThrow_WhenUserMissing() {
+        ReflectionTestUtils.setField(cardService, "bulkMaxCards", 100);
+        when(userRepository.findAllById(any())).thenReturn(List.of(testUser));
+
+        assertThatThrownBy(() -> cardService.createCardsForUsers(List.of(1L, 2L), 1))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("2");
+    }
+
+    @Test
+    void createCardsForUsers_ShouldThrow_WhenLimitExceeded() {
+        ReflectionTestUtils.setField(cardService, "bulkMaxCards", 10);
+
+        assertThatThrownBy(() -> cardService.createCardsForUsers(List.of(1L, 2L), 6))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void findCardsByUserId_ShouldReturnPage() {
-        when(cardRepository.findByUserId(eq(1L), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(testCard)));
+        when(cardRepository.findViewsByUserId(eq(1L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testView)));
 
-        Page<Card> page = cardService.findCardsByUserId(1L, Pageable.unpaged());
+        Page<CardView> page = cardService.findCardsByUserId(1L, Pageable.unpaged());
 
         assertThat(page.getContent()).hasSize(1);
     }
 
     @Test
     void findCardsByUserIdAndNumber_ShouldReturnPage() {
-        when(cardRepository.findByUserIdAndNumberContaining(eq(1L), eq("1234"), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(testCard)));
+        when(cardRepository.findViewsByUserIdAndNumberContaining(eq(1L), eq("1234"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testView)));
 
-        Page<Card> page = cardService.findCardsByUserIdAndNumber(1L, "1234", Pageable.unpaged());
+        Page<CardView> page = cardService.findCardsByUserIdAndNumber(1L, "1234", Pageable.unpaged());
 
-        assertThat(page.getContent()).contains(testCard);
+        assertThat(page.getContent()).contains(testView);
     }
 
     @Test
     void getCardByIdForUser_ShouldReturnCard() {
+        when(cardRepository.findViewByIdAndUserId(1L, 1L)).thenReturn(Optional.of(testView));
+
+        CardView card = cardService.getCardByIdForUser(1L, 1L);
+
+        assertThat(card).isEqualTo(testView);
+    }
+
+    @Test
+    void getCardByIdForUser_ShouldServeRepeatedReadsFromCache() {
+        when(cardRepository.findViewByIdAndUserId(1L, 1L)).thenReturn(Optional.of(testView));
+
+        cardService.getCardByIdForUser(1L, 1L);
+        CardView card = cardService.getCardByIdForUser(1L, 1L);
+
+        assertThat(card).isEqualTo(testView);
+        verify(cardRepository, times(1)).findViewByIdAndUserId(1L, 1L);
+    }
+
+    @Test
+    void getCardByIdForUser_ShouldNotCacheLoad_WhenCardEvictedWhileLoading() {
+        when(cardRepository.findViewByIdAndUserId(1L, 1L)).thenAnswer(invocation -> {
+            cardCache.evictCard(1L, 1L);
+            return Optional.of(testView);
+        });
+
+        cardService.getCardByIdForUser(1L, 1L);
+        cardService.getCardByIdForUser(1L, 1L);
+
+        verify(cardRepository, times(2)).findViewByIdAndUserId(1L, 1L);
+    }
+
+    @Test
+    void getCardByIdForUser_ShouldThrow_WhenCachedCardBelongsToAnotherUser() {
+        when(cardRepository.findViewByIdAndUserId(1L, 1L)).thenReturn(Optional.of(testView));
+        cardService.getCardByIdForUser(1L, 1L);
+
+        assertThatThrownBy(() -> cardService.getCardByIdForUser(1L, 2L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void findCardsByUserId_ShouldReloadAfterDeposit() {
+        when(cardRepository.findViewsByUserId(eq(1L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testView)));
+        when(cardRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+
+        cardService.findCardsByUserId(1L, Pageable.unpaged());
+        cardService.findCardsByUserId(1L, Pageable.unpaged());
+        cardService.depositToCard(1L, 1L, BigDecimal.TEN);
+        cardService.findCardsByUserId(1L, Pageable.unpaged());
+
+        verify(cardRepository, times(2)).findViewsByUserId(eq(1L), any(Pageable.class));
+        verify(cardCache).evictCard(1L, 1L);
+    }
+
+    @Test
+    void getCardsVersion_ShouldBeCachedUntilCardChanges() {
+        when(cardRepository.findVersionMarkerByUserId(1L)).thenReturn(new VersionMarker(1L, 1L, 0L));
         when(cardRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
 
-        Card card = cardService.getCardByIdForUser(1L, 1L);
+        cardService.getCardsVersion(1L);
+        cardService.getCardsVersion(1L);
+        cardService.depositToCard(1L, 1L, BigDecimal.TEN);
+        cardService.getCardsVersion(1L);
 
-        assertThat(card).isEqualTo(testCard);
+        verify(cardRepository, times(2)).findVersionMarkerByUserId(1L);
     }
 
     @Test
     void getCardByIdForUser_ShouldThrow_WhenNotFound() {
-        when(cardRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
+        when(cardRepository.findViewByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.getCardByIdForUser(1L, 1L))
                 .isInstanceOf(NotFoundException.class);
     }
 
     @Test
-    void deleteCard_ShouldInvokeRepository() {
+    void deleteCard_ShouldTombstoneInsteadOfDeletingRow() {
         cardService.deleteCard(1L);
 
-        verify(cardRepository).deleteById(1L);
+        verify(cardRepository).tombstoneCard(1L);
+        verify(cardRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void deleteCard_ShouldEvictOwnerCards() {
+        when(cardRepository.findUserIdById(1L)).thenReturn(Optional.of(1L));
+
+        cardService.deleteCard(1L);
+
+        verify(cardCache).evictCard(1L, 1L);
     }
 
     @Test
@@ -161,6 +309,41 @@ class CardServiceTest {
                 .isInstanceOf(IllegalArgumentException.class);
     }
 
+    @Test
+    void approveAllBlockRequests_ShouldRepeatChunksAndReportProgress() {
+        ReflectionTestUtils.setField(cardService, "bulkChunkSize", 3);
+        when(cardRepository.approveBlockRequestsBatch(3)).thenReturn(3, 3, 2);
+        List<Long> progress = new ArrayList<>();
+
+        long total = cardService.approveAllBlockRequests(progress::add);
+
+        assertThat(total).isEqualTo(8);
+        assertThat(progress).containsExactly(3L, 6L, 8L);
+    }
+
+    @Test
+    void blockAllUserCards_ShouldStop_WhenChunkNotFull() {
+        ReflectionTestUtils.setField(cardService, "bulkChunkSize", 10);
+        when(cardRepository.blockUserCardsBatch(1L, 10)).thenReturn(4);
+
+        long total = cardService.blockAllUserCards(1L, p -> { });
+
+        assertThat(total).isEqualTo(4);
+        verify(cardRepository, times(1)).blockUserCardsBatch(1L, 10);
+    }
+
+    @Test
+    void blockCards_ShouldSplitDistinctIdsIntoChunks() {
+        ReflectionTestUtils.setField(cardService, "bulkChunkSize", 2);
+        when(cardRepository.blockCardsByIds(anyCollection())).thenReturn(2, 1);
+
+        long total = cardService.blockCards(List.of(1L, 2L, 2L, 3L), p -> { });
+
+        assertThat(total).isEqualTo(3);
+        verify(cardRepository).blockCardsByIds(List.of(1L, 2L));
+        verify(cardRepository).blockCardsByIds(List.of(3L));
+    }
+
     @Test
     void getMaskedNumber_ShouldReturnMasked() {
         when(cryptoUtil.decrypt("encrypted")).thenReturn("1234567812345678");
@@ -172,11 +355,77 @@ class CardServiceTest {
 
     @Test
     void getAllCards_ShouldReturnPage() {
-        when(cardRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(testCard)));
+        when(cardRepository.findAllViews(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(testView)));
+
+        PageResponse<CardView> page = cardService.getAllCards(Pageable.unpaged(), CountMode.EXACT);
+
+        assertThat(page.content()).contains(testView);
+        assertThat(page.totalKind()).isEqualTo(CountMode.EXACT);
+        verifyNoInteractions(tableStatsRepository);
+    }
+
+    @Test
+    void getAllCards_ShouldUseTableEstimate_WithoutCountQuery() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(tableStatsRepository.estimateRowCount("cards")).thenReturn(Optional.of(1_000_000L));
+        when(cardRepository.findAllViewsSlice(pageable)).thenReturn(new SliceImpl<>(List.of(testView), pageable, true));
 
-        Page<Card> page = cardService.getAllCards(Pageable.unpaged());
+        PageResponse<CardView> page = cardService.getAllCards(pageable, CountMode.ESTIMATE);
 
-        assertThat(page.getContent()).contains(testCard);
+        assertThat(page.totalElements()).isEqualTo(1_000_000L);
+        assertThat(page.totalPages()).isEqualTo(1_000_000);
+        assertThat(page.totalKind()).isEqualTo(CountMode.ESTIMATE);
+        verify(cardRepository, never()).findAllViews(any(Pageable.class));
+    }
+
+    @Test
+    void getAllCards_ShouldReportExactTotal_WhenEstimatedPageIsLast() {
+        Pageable pageable = PageRequest.of(2, 10);
+        when(tableStatsRepository.estimateRowCount("cards")).thenReturn(Optional.of(100L));
+        when(cardRepository.findAllViewsSlice(pageable)).thenReturn(new SliceImpl<>(List.of(testView), pageable, false));
+
+        PageResponse<CardView> page = cardService.getAllCards(pageable, CountMode.ESTIMATE);
+
+        assertThat(page.totalElements()).isEqualTo(21L);
+        assertThat(page.totalKind()).isEqualTo(CountMode.EXACT);
+    }
+
+    @Test
+    void getAllCards_ShouldKeepEstimate_WhenPageIsPastTheEnd() {
+        Pageable pageable = PageRequest.of(5, 20);
+        when(tableStatsRepository.estimateRowCount("cards")).thenReturn(Optional.of(37L));
+        when(cardRepository.findAllViewsSlice(pageable)).thenReturn(new SliceImpl<>(List.of(), pageable, false));
+
+        PageResponse<CardView> page = cardService.getAllCards(pageable, CountMode.ESTIMATE);
+
+        assertThat(page.content()).isEmpty();
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.totalElements()).isEqualTo(37L);
+        assertThat(page.totalKind()).isEqualTo(CountMode.ESTIMATE);
+    }
+
+    @Test
+    void getAllCards_ShouldFallBackToExactCount_WhenTableNotAnalyzed() {
+        when(tableStatsRepository.estimateRowCount("cards")).thenReturn(Optional.empty());
+        when(cardRepository.findAllViews(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(testView)));
+
+        PageResponse<CardView> page = cardService.getAllCards(Pageable.unpaged(), CountMode.ESTIMATE);
+
+        assertThat(page.totalElements()).isEqualTo(1L);
+        assertThat(page.totalKind()).isEqualTo(CountMode.EXACT);
+    }
+
+    @Test
+    void getAllCards_ShouldSkipTotals_WhenCountDisabled() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(cardRepository.findAllViewsSlice(pageable)).thenReturn(new SliceImpl<>(List.of(testView), pageable, false));
+
+        PageResponse<CardView> page = cardService.getAllCards(pageable, CountMode.NONE);
+
+        assertThat(page.totalElements()).isNull();
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.totalKind()).isEqualTo(CountMode.NONE);
+        verifyNoInteractions(tableStatsRepository);
     }
 
     @Test
@@ -195,19 +444,95 @@ class CardServiceTest {
                 .isInstanceOf(IllegalArgumentException.class);
     }
 
+    @SuppressWarnings("unchecked")
+    private void runJobsAsLeader() {
+        when(jobLeaseService.runExclusively(anyString(), any())).thenAnswer(inv -> {
+            inv.getArgument(1, Consumer.class).accept((BooleanSupplier) () -> true);
+            return true;
+        });
+    }
+
+    @Test
+    void checkAndUpdateExpiredCards_ShouldUpdateInChunksUntilExhausted() {
+        runJobsAsLeader();
+        ReflectionTestUtils.setField(cardService, "expirySweepChunkSize", 2);
+        when(cardRepository.expireActiveCardsBatch(any(LocalDate.class), eq(2)))
+                .thenReturn(2, 2, 1);
+
+        cardService.checkAndUpdateExpiredCards();
+
+        verify(cardRepository, times(3)).expireActiveCardsBatch(any(LocalDate.class), eq(2));
+        verify(cardRepository, never()).save(any(Card.class));
+        assertThat(meterRegistry.counter("cards.expiry.sweep.expired").count()).isEqualTo(5);
+    }
+
+    @Test
+    void checkAndUpdateExpiredCards_ShouldStop_WhenNothingExpired() {
+        runJobsAsLeader();
+        ReflectionTestUtils.setField(cardService, "expirySweepChunkSize", 100);
+        when(cardRepository.expireActiveCardsBatch(any(LocalDate.class), anyInt())).thenReturn(0);
+
+        cardService.checkAndUpdateExpiredCards();
+
+        verify(cardRepository, times(1)).expireActiveCardsBatch(any(LocalDate.class), eq(100));
+    }
+
     @Test
-    void checkAndUpdateExpiredCards_ShouldUpdateExpired() {
-        Card expired = new Card();
-        expired.setId(2L);
-        expired.setStatus(CardStatus.ACTIVE);
-        expired.setExpiryDate(LocalDate.now().minusDays(1));
+    void checkAndUpdateExpiredCards_ShouldSkip_WhenNotLeader() {
+        when(jobLeaseService.runExclusively(anyString(), any())).thenReturn(false);
+
+        cardService.checkAndUpdateExpiredCards();
+
+        verify(cardRepository, never()).expireActiveCardsBatch(any(LocalDate.class), anyInt());
+    }
 
-        when(cardRepository.findByStatusAndExpiryDateBefore(eq(CardStatus.ACTIVE), any(LocalDate.class)))
-                .thenReturn(List.of(expired));
+    @Test
+    void checkAndUpdateExpiredCards_ShouldNotTakeLease_WhenDisabled() {
+        ReflectionTestUtils.setField(cardService, "expirySweepEnabled", false);
 
         cardService.checkAndUpdateExpiredCards();
 
-        assertThat(expired.getStatus()).isEqualTo(CardStatus.EXPIRED);
-        verify(cardRepository).save(expired);
+        verifyNoInteractions(jobLeaseService);
+    }
+
+    @Test
+    void searchCards_ShouldReturnCursor_WhenMoreResultsExist() {
+        ReflectionTestUtils.setField(cardService, "searchMaxPageSize", 100);
+        CardView second = new CardView(2L, "encrypted", CardStatus.ACTIVE, BigDecimal.TEN,
+                testView.expiryDate(), false, 1L, "user", 0L);
+        when(cardRepository.searchViews(any(), eq(CardSortKey.BALANCE), eq(Sort.Direction.ASC), isNull(), eq(2)))
+                .thenReturn(List.of(testView, second));
+
+        KeysetPage<CardView> page = cardService.searchCards(emptyFilter(), CardSortKey.BALANCE,
+                Sort.Direction.ASC, null, 1);
+
+        assertThat(page.content()).containsExactly(testView);
+        assertThat(page.hasNext()).isTrue();
+        CardSearchCursor cursor = CardSearchCursor.decode(page.nextCursor());
+        assertThat(cursor.id()).isEqualTo(1L);
+        assertThat(cursor.value()).isEqualTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void searchCards_ShouldThrow_WhenCursorSortDiffers() {
+        ReflectionTestUtils.setField(cardService, "searchMaxPageSize", 100);
+        String cursor = CardSearchCursor.after(testView, CardSortKey.BALANCE, Sort.Direction.ASC).encode();
+
+        assertThatThrownBy(() -> cardService.searchCards(emptyFilter(), CardSortKey.EXPIRY_DATE,
+                Sort.Direction.ASC, cursor, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void searchCards_ShouldThrow_WhenPageSizeTooLarge() {
+        ReflectionTestUtils.setField(cardService, "searchMaxPageSize", 100);
+
+        assertThatThrownBy(() -> cardService.searchCards(emptyFilter(), CardSortKey.ID,
+                Sort.Direction.ASC, null, 101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CardSearchFilter emptyFilter() {
+        return new CardSearchFilter(null, null, null, null, null, null);
     }
 }
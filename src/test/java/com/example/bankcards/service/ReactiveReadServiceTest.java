@@ -0,0 +1,62 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.ReactiveReadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class ReactiveReadServiceTest {
+
+    @Mock
+    private ReactiveReadRepository reactiveReadRepository;
+
+    @InjectMocks
+    private ReactiveReadService reactiveReadService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reactiveReadService, "maxPageSize", 1000);
+    }
+
+    @Test
+    void getUserCards_ShouldStartFromFirstCard_WhenNoCursor() {
+        when(reactiveReadRepository.findCardsByUserId(1L, null, 0, 50)).thenReturn(Flux.empty());
+
+        assertThat(reactiveReadService.getUserCards(1L, null, null, 50).collectList().block()).isEmpty();
+        verify(reactiveReadRepository).findCardsByUserId(1L, null, 0, 50);
+    }
+
+    @Test
+    void getTransfersByUser_ShouldStartFromNewest_WhenNoCursor() {
+        when(reactiveReadRepository.findTransfersByUserId(1L, Long.MAX_VALUE, 10)).thenReturn(Flux.empty());
+
+        reactiveReadService.getTransfersByUser(1L, null, 10).blockLast();
+
+        verify(reactiveReadRepository).findTransfersByUserId(1L, Long.MAX_VALUE, 10);
+    }
+
+    @Test
+    void getTransfersByCard_ShouldRejectOversizedPage() {
+        assertThrows(IllegalArgumentException.class,
+                () -> reactiveReadService.getTransfersByCard(5L, 1L, null, 1001));
+        verifyNoInteractions(reactiveReadRepository);
+    }
+
+    @Test
+    void getCard_ShouldFailWithNotFound_WhenCardIsNotOwned() {
+        when(reactiveReadRepository.findCardByIdAndUserId(9L, 1L)).thenReturn(Mono.empty());
+
+        assertThrows(NotFoundException.class, () -> reactiveReadService.getCard(9L, 1L).block());
+    }
+}
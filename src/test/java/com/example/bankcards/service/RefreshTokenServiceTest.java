@@ -0,0 +1,97 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.auth.AuthResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private UserRepository userRepository;
+    private JwtTokenProvider jwtTokenProvider;
+    private RefreshTokenService service;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        userRepository = mock(UserRepository.class);
+        jwtTokenProvider = mock(JwtTokenProvider.class);
+        service = new RefreshTokenService(refreshTokenRepository, userRepository, jwtTokenProvider, 3_600_000);
+
+        user = new User().setId(1L).setEmail("john@mail.com").setRole(Role.USER);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(jwtTokenProvider.generateToken(1L, "john@mail.com", "ROLE_USER")).thenReturn("access");
+    }
+
+    @Test
+    void refresh_ShouldRotateToken_WhenValid() {
+        RefreshToken stored = stored(LocalDateTime.now().plusHours(1));
+        when(refreshTokenRepository.findByTokenHashForUpdate(any())).thenReturn(Optional.of(stored));
+
+        AuthResponse response = service.refresh("presented");
+
+        assertEquals("access", response.token());
+        assertNotNull(response.refreshToken());
+        assertNotEquals("presented", response.refreshToken());
+        assertNotNull(stored.getUsedAt());
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals("family", saved.getValue().getFamilyId());
+        assertEquals(64, saved.getValue().getTokenHash().length());
+        assertNotEquals(response.refreshToken(), saved.getValue().getTokenHash());
+    }
+
+    @Test
+    void refresh_ShouldRevokeFamily_WhenTokenReused() {
+        RefreshToken stored = stored(LocalDateTime.now().plusHours(1)).setUsedAt(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHashForUpdate(any())).thenReturn(Optional.of(stored));
+
+        assertThrows(UnauthorizedException.class, () -> service.refresh("presented"));
+
+        verify(refreshTokenRepository).revokeFamily(eq("family"), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void refresh_ShouldReject_WhenExpired() {
+        when(refreshTokenRepository.findByTokenHashForUpdate(any()))
+                .thenReturn(Optional.of(stored(LocalDateTime.now().minusSeconds(1))));
+
+        assertThrows(UnauthorizedException.class, () -> service.refresh("presented"));
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void refresh_ShouldReject_WhenUnknown() {
+        when(refreshTokenRepository.findByTokenHashForUpdate(any())).thenReturn(Optional.empty());
+
+        assertThrows(UnauthorizedException.class, () -> service.refresh("unknown"));
+    }
+
+    private RefreshToken stored(LocalDateTime expiresAt) {
+        return new RefreshToken()
+                .setId(10L)
+                .setUserId(1L)
+                .setFamilyId("family")
+                .setTokenHash("hash")
+                .setExpiresAt(expiresAt);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.TokenRevocation;
+import com.example.bankcards.repository.TokenRevocationRepository;
+import com.example.bankcards.security.JwtPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+
+    private TokenRevocationRepository revocationRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setUp() {
+        revocationRepository = mock(TokenRevocationRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new TokenRevocationService(revocationRepository, meterRegistry, 1_000, 0.01, 900_000, 60_000);
+    }
+
+    @Test
+    void isRevoked_ShouldNotQueryDatabase_WhenFilterMisses() {
+        assertFalse(service.isRevoked(principal(1L, "jti-1")));
+
+        verify(revocationRepository, never()).isRevoked(any(), any(), any());
+    }
+
+    @Test
+    void isRevoked_ShouldConfirmInDatabase_WhenUserRevoked() {
+        when(revocationRepository.isRevoked(eq("jti-1"), eq(1L), any())).thenReturn(true);
+
+        service.revokeUser(1L);
+
+        assertTrue(service.isRevoked(principal(1L, "jti-1")));
+        assertFalse(service.isRevoked(principal(2L, "jti-2")));
+        verify(revocationRepository).save(any(TokenRevocation.class));
+        assertEquals(1, meterRegistry.counter("jwt.revocation.confirmed").count());
+    }
+
+    @Test
+    void isRevoked_ShouldReturnFalse_WhenFilterHitIsNotConfirmed() {
+        service.revokeUser(1L);
+        when(revocationRepository.isRevoked(anyString(), anyLong(), any())).thenReturn(false);
+
+        assertFalse(service.isRevoked(principal(1L, "issued-after-revocation")));
+        assertEquals(1, meterRegistry.counter("jwt.revocation.filter.hits").count());
+    }
+
+    @Test
+    void loadOnStartup_ShouldLoadRevocationsMadeBeforeRestart() {
+        TokenRevocation earlier = new TokenRevocation()
+                .setUserId(3L)
+                .setExpiresAt(LocalDateTime.now().plusMinutes(15));
+        when(revocationRepository.findByExpiresAtAfter(any())).thenReturn(List.of(earlier));
+        when(revocationRepository.isRevoked(eq("jti-3"), eq(3L), any())).thenReturn(true);
+
+        service.loadOnStartup();
+
+        assertTrue(service.isRevoked(principal(3L, "jti-3")));
+    }
+
+    @Test
+    void pollNewRevocations_ShouldPickUpRevocationsFromOtherNodes() {
+        when(revocationRepository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        service.rebuild();
+        TokenRevocation remote = new TokenRevocation()
+                .setTokenId("jti-remote")
+                .setExpiresAt(LocalDateTime.now().plusMinutes(15));
+        when(revocationRepository.findByRevokedAtAfter(any())).thenReturn(List.of(remote));
+        when(revocationRepository.isRevoked(eq("jti-remote"), eq(5L), any())).thenReturn(true);
+
+        service.pollNewRevocations();
+
+        assertTrue(service.isRevoked(principal(5L, "jti-remote")));
+    }
+
+    @Test
+    void rebuild_ShouldDropExpiredEntries() {
+        service.revokeUser(1L);
+        when(revocationRepository.findByExpiresAtAfter(any())).thenReturn(List.of());
+
+        service.rebuild();
+
+        verify(revocationRepository).deleteExpired(any());
+        assertFalse(service.isRevoked(principal(1L, "jti-1")));
+        verify(revocationRepository, never()).isRevoked(any(), any(), any());
+    }
+
+    private JwtPrincipal principal(Long userId, String tokenId) {
+        return new JwtPrincipal(userId, "user" + userId, "ROLE_USER", tokenId, Instant.now());
+    }
+}
@@ -17,6 +17,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.*;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -35,6 +36,9 @@ class TransferServiceTest {
     @Mock
     private CardRepository cardRepository;
 
+    @Mock
+    private CardCache cardCache;
+
     @InjectMocks
     private TransferService transferService;
 
@@ -45,6 +49,7 @@ class TransferServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(transferService, "maxHistoryOffset", 10_000L);
 
         testUser = new User();
         testUser.setId(1L);
@@ -112,6 +117,19 @@ class TransferServiceTest {
                 .isInstanceOf(ForbiddenException.class);
     }
 
+    @Test
+    void transferBetweenOwnCards_ShouldThrow_WhenCardWasDeleted() {
+        toCard.setUser(null);
+
+        TransferInput input = new TransferInput(fromCard.getId(), toCard.getId(), new BigDecimal("100"));
+
+        when(cardRepository.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        assertThatThrownBy(() -> transferService.transferBetweenOwnCards(testUser.getId(), input))
+                .isInstanceOf(ForbiddenException.class);
+    }
+
     @Test
     void transferBetweenOwnCards_ShouldThrow_WhenInsufficientFunds() {
         TransferInput input = new TransferInput(fromCard.getId(), toCard.getId(), new BigDecimal("5000"));
@@ -157,7 +175,7 @@ class TransferServiceTest {
     }
 
     @Test
-    void getTransfersByCard_ShouldReturnCombinedTransfers() {
+    void getTransfersByCard_ShouldReadOnlyRequestedPage() {
         Transfer tr1 = new Transfer();
         tr1.setId(1L);
         tr1.setFromCard(fromCard);
@@ -172,15 +190,23 @@ class TransferServiceTest {
         tr2.setAmount(new BigDecimal("200"));
         tr2.setTransferDate(LocalDateTime.now());
 
-        when(transferRepository.findByFromCard_Id(eq(fromCard.getId()), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(tr1)));
-        when(transferRepository.findByToCard_Id(eq(fromCard.getId()), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(tr2)));
+        when(transferRepository.findPageByCardId(fromCard.getId(), 12L, 2, 10L))
+                .thenReturn(List.of(tr2, tr1));
+        when(transferRepository.countByCardId(fromCard.getId())).thenReturn(15L);
 
-        Page<TransferResponse> result = transferService.getTransfersByCard(fromCard.getId(), PageRequest.of(0, 10));
+        Page<TransferResponse> result = transferService.getTransfersByCard(fromCard.getId(), PageRequest.of(5, 2));
 
         assertThat(result.getContent()).hasSize(2);
         assertThat(result.getContent().get(0).amount()).isEqualByComparingTo("200");
         assertThat(result.getContent().get(1).amount()).isEqualByComparingTo("100");
+        assertThat(result.getTotalElements()).isEqualTo(15);
+    }
+
+    @Test
+    void getTransfersByCard_ShouldRejectTooDeepPage() {
+        assertThatThrownBy(() -> transferService.getTransfersByCard(fromCard.getId(), PageRequest.of(501, 20)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("10000");
+        verifyNoInteractions(transferRepository);
     }
 }
@@ -0,0 +1,141 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.user.UserImportFailure;
+import com.example.bankcards.dto.user.UserImportFormat;
+import com.example.bankcards.dto.user.UserImportProgress;
+import com.example.bankcards.dto.user.UserImportRow;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.repository.UserImportRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    private static final String BCRYPT_HASH = "$2a$10$" + "a".repeat(53);
+
+    private UserImportRepository repository;
+    private PasswordEncoder passwordEncoder;
+    private UserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserImportRepository.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(any())).thenAnswer(invocation -> "hashed:" + invocation.getArgument(0));
+        // По умолчанию вставляются все переданные строки
+        when(repository.insertIgnoringConflicts(anyList(), anyList())).thenAnswer(invocation -> {
+            List<UserImportRow> rows = invocation.getArgument(0);
+            return rows.stream().map(UserImportRow::email).collect(Collectors.toSet());
+        });
+        UserCache userCache = new UserCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        service = new UserImportService(repository, passwordEncoder, new ObjectMapper(), userCache,
+                new SimpleMeterRegistry(), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void importUsers_ShouldInsertCsvInChunksAndReportProgress() {
+        String csv = """
+                email,username,password,role
+                a@mail.com,a,secret,USER
+                b@mail.com,b,secret,admin
+                c@mail.com,c,secret,
+                """;
+        List<UserImportProgress> progress = new ArrayList<>();
+
+        UserImportProgress result = service.importUsers(stream(csv), UserImportFormat.CSV, progress::add);
+
+        assertEquals(3, result.processed());
+        assertEquals(3, result.imported());
+        assertTrue(result.completed());
+        assertEquals(2, progress.size());
+        assertFalse(progress.get(0).completed());
+
+        ArgumentCaptor<List<UserImportRow>> rows = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>> hashes = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).insertIgnoringConflicts(rows.capture(), hashes.capture());
+        assertEquals(Role.ADMIN, rows.getAllValues().get(0).get(1).role());
+        assertEquals(Role.USER, rows.getAllValues().get(1).get(0).role());
+        assertEquals(List.of("hashed:secret", "hashed:secret"), hashes.getAllValues().get(0));
+    }
+
+    @Test
+    void importUsers_ShouldKeepPrehashedPasswordsWithoutHashing() {
+        String ndjson = "{\"email\":\"a@mail.com\",\"username\":\"a\",\"passwordHash\":\"" + BCRYPT_HASH + "\"}\n";
+
+        UserImportProgress result = service.importUsers(stream(ndjson), UserImportFormat.NDJSON, p -> { });
+
+        assertEquals(1, result.imported());
+        verify(repository).insertIgnoringConflicts(anyList(), eq(List.of(BCRYPT_HASH)));
+        verifyNoInteractions(passwordEncoder);
+    }
+
+    @Test
+    void importUsers_ShouldReportInvalidAndDuplicateRowsPerLine() {
+        String ndjson = """
+                {"email":"a@mail.com","username":"a","password":"secret"}
+                {"email":"a@mail.com","username":"a2","password":"secret"}
+                not json
+                {"email":"bad","username":"b","password":"secret"}
+                {"email":"c@mail.com","username":"c","passwordHash":"plain"}
+                """;
+        UserImportProgress result = new UserImportService(repository, passwordEncoder, new ObjectMapper(),
+                mock(UserCache.class), new SimpleMeterRegistry(), 100, 1)
+                .importUsers(stream(ndjson), UserImportFormat.NDJSON, p -> { });
+
+        assertEquals(5, result.processed());
+        assertEquals(1, result.imported());
+        assertEquals(List.of(2L, 3L, 4L, 5L), result.failures().stream().map(UserImportFailure::line).sorted().toList());
+    }
+
+    @Test
+    void importUsers_ShouldTellEmailFromUsernameConflicts() {
+        when(repository.insertIgnoringConflicts(anyList(), anyList())).thenReturn(Set.of());
+        when(repository.findExistingEmails(anyList())).thenReturn(Set.of("a@mail.com"));
+        String csv = """
+                email,username,password
+                a@mail.com,a,secret
+                b@mail.com,taken,secret
+                """;
+
+        List<UserImportProgress> progress = new ArrayList<>();
+
+        UserImportProgress result = service.importUsers(stream(csv), UserImportFormat.CSV, progress::add);
+
+        assertEquals(0, result.imported());
+        assertEquals(List.of(new UserImportFailure(2, "Email already taken"), new UserImportFailure(3, "Username already taken")),
+                progress.get(0).failures());
+    }
+
+    @Test
+    void importUsers_ShouldFail_WhenCsvHeaderMissesColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.importUsers(stream("mail,name\nx,y\n"), UserImportFormat.CSV, p -> { }));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.UserDeletionJob;
+import com.example.bankcards.entity.UserDeletionStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserDeletionJobRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class UserPurgeServiceTest {
+
+    @Mock
+    private UserDeletionJobRepository userDeletionJobRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private JobLeaseService jobLeaseService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private UserPurgeService userPurgeService;
+
+    private UserDeletionJob job;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(userPurgeService, "enabled", true);
+        ReflectionTestUtils.setField(userPurgeService, "chunkSize", 2);
+        ReflectionTestUtils.setField(userPurgeService, "pauseMs", 0L);
+        ReflectionTestUtils.setField(userPurgeService, "jobsPerRun", 10);
+
+        job = new UserDeletionJob().setId(7L).setUserId(1L);
+        when(userDeletionJobRepository.findByStatusInOrderByIdAsc(anyCollection(), any(Limit.class)))
+                .thenReturn(List.of(job));
+        when(userDeletionJobRepository.save(any(UserDeletionJob.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private void runJobsAsLeader(BooleanSupplier leaseHeld) {
+        when(jobLeaseService.runExclusively(anyString(), any())).thenAnswer(inv -> {
+            inv.getArgument(1, Consumer.class).accept(leaseHeld);
+            return true;
+        });
+    }
+
+    @Test
+    void purgeDeletedUsers_ShouldDeleteCardsInChunksAndThenUser() {
+        runJobsAsLeader(() -> true);
+        when(cardRepository.tombstoneUserCardsBatch(1L, 2)).thenReturn(2, 2, 1);
+
+        userPurgeService.purgeDeletedUsers();
+
+        verify(cardRepository, times(3)).tombstoneUserCardsBatch(1L, 2);
+        verify(userRepository).purgeSoftDeleted(1L);
+        assertThat(job.getStatus()).isEqualTo(UserDeletionStatus.COMPLETED);
+        assertThat(job.getCardsDeleted()).isEqualTo(5);
+        assertThat(job.getFinishedAt()).isNotNull();
+        assertThat(meterRegistry.counter("users.purge.cards").count()).isEqualTo(5);
+    }
+
+    @Test
+    void purgeDeletedUsers_ShouldLeaveJobRunning_WhenLeaseLost() {
+        AtomicInteger checks = new AtomicInteger();
+        runJobsAsLeader(() -> checks.incrementAndGet() <= 1);
+        when(cardRepository.tombstoneUserCardsBatch(1L, 2)).thenReturn(2);
+
+        userPurgeService.purgeDeletedUsers();
+
+        verify(cardRepository, times(1)).tombstoneUserCardsBatch(1L, 2);
+        verify(userRepository, never()).purgeSoftDeleted(anyLong());
+        assertThat(job.getStatus()).isEqualTo(UserDeletionStatus.RUNNING);
+        assertThat(job.getCardsDeleted()).isEqualTo(2);
+    }
+
+    @Test
+    void purgeDeletedUsers_ShouldMarkJobFailed_WhenStatementFails() {
+        runJobsAsLeader(() -> true);
+        when(cardRepository.tombstoneUserCardsBatch(1L, 2)).thenThrow(new QueryTimeoutException("timeout"));
+
+        userPurgeService.purgeDeletedUsers();
+
+        assertThat(job.getStatus()).isEqualTo(UserDeletionStatus.FAILED);
+        assertThat(job.getError()).isEqualTo("timeout");
+        verify(userRepository, never()).purgeSoftDeleted(anyLong());
+    }
+
+    @Test
+    void purgeDeletedUsers_ShouldSkip_WhenNotLeader() {
+        when(jobLeaseService.runExclusively(anyString(), any())).thenReturn(false);
+
+        userPurgeService.purgeDeletedUsers();
+
+        verifyNoInteractions(cardRepository, userRepository);
+    }
+
+    @Test
+    void purgeDeletedUsers_ShouldNotTakeLease_WhenDisabled() {
+        ReflectionTestUtils.setField(userPurgeService, "enabled", false);
+
+        userPurgeService.purgeDeletedUsers();
+
+        verifyNoInteractions(jobLeaseService, userDeletionJobRepository);
+    }
+}
@@ -1,27 +1,47 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.ApiResult;
+import com.example.bankcards.dto.CountMode;
+import com.example.bankcards.dto.KeysetPage;
+import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.user.CreateUserInput;
+import com.example.bankcards.dto.user.UserDeletionJobResponse;
 import com.example.bankcards.dto.user.UserResponse;
+import com.example.bankcards.dto.user.UserView;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.UserDeletionJob;
+import com.example.bankcards.entity.UserDeletionStatus;
 import com.example.bankcards.exception.AlreadyExistsException;
 import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.TableStatsRepository;
+import com.example.bankcards.repository.UserDeletionJobRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.PasswordHashingExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +54,24 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private TableStatsRepository tableStatsRepository;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Mock
+    private UserDeletionJobRepository userDeletionJobRepository;
+
+    @Spy
+    private UserCache userCache = new UserCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
     @InjectMocks
     private UserService userService;
 
@@ -42,6 +80,9 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(userService, "searchMaxPageSize", 50);
+        when(passwordHashingExecutor.call(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
 
         testUser = new User();
         testUser.setId(1L);
@@ -55,10 +96,8 @@ class UserServiceTest {
     void register_ShouldCreateUser_WhenValidInput() {
         CreateUserInput input = new CreateUserInput("john@mail.com", "123456", "john");
 
-        when(userRepository.existsByUsername("john")).thenReturn(false);
-        when(userRepository.existsByEmail("john@mail.com")).thenReturn(false);
         when(passwordEncoder.encode("123456")).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(testUser);
 
         ApiResult<UserResponse> result = userService.register(input);
 
@@ -68,13 +107,15 @@ class UserServiceTest {
         assertEquals("john@mail.com", response.email());
         assertEquals(Role.USER, response.role());
 
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
     }
 
     @Test
     void register_ShouldThrow_WhenUsernameExists() {
         CreateUserInput input = new CreateUserInput("john@mail.com", "123456", "john");
-        when(userRepository.existsByUsername("john")).thenReturn(true);
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation("users_username_key"));
 
         AlreadyExistsException ex = assertThrows(AlreadyExistsException.class,
                 () -> userService.register(input));
@@ -84,27 +125,72 @@ class UserServiceTest {
     @Test
     void register_ShouldThrow_WhenEmailExists() {
         CreateUserInput input = new CreateUserInput("john@mail.com", "123456", "john");
-        when(userRepository.existsByUsername("john")).thenReturn(false);
-        when(userRepository.existsByEmail("john@mail.com")).thenReturn(true);
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation("users_email_key"));
 
         AlreadyExistsException ex = assertThrows(AlreadyExistsException.class,
                 () -> userService.register(input));
         assertEquals("Email already taken", ex.getMessage());
     }
 
+    @Test
+    void register_ShouldRethrow_WhenOtherConstraintViolated() {
+        CreateUserInput input = new CreateUserInput("john@mail.com", "123456", "john");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation("users_role_check"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.register(input));
+    }
+
+    private static DataIntegrityViolationException uniqueViolation(String constraint) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key", "23505"), constraint));
+    }
+
+    @Test
+    void searchUsers_ShouldEscapeWildcardsAndReturnNextCursor() {
+        List<UserView> found = List.of(
+                new UserView(3L, "john_1", "a@mail.com", Role.USER),
+                new UserView(7L, "john_2", "b@mail.com", Role.USER),
+                new UserView(9L, "john_3", "c@mail.com", Role.USER));
+        when(userRepository.searchViews("%jo\\_h%", 0, Limit.of(3))).thenReturn(found);
+
+        KeysetPage<UserView> page = userService.searchUsers(" jo_h ", null, 2);
+
+        assertEquals(2, page.content().size());
+        assertTrue(page.hasNext());
+        assertEquals("7", page.nextCursor());
+    }
+
+    @Test
+    void searchUsers_ShouldStartAfterCursor() {
+        when(userRepository.searchViews("%john%", 7L, Limit.of(3))).thenReturn(List.of());
+
+        KeysetPage<UserView> page = userService.searchUsers("john", "7", 2);
+
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void searchUsers_ShouldReject_WhenQueryTooShortOrSizeTooLarge() {
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("jo", null, 20));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("john", null, 51));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("john", "abc", 20));
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void findById_ShouldReturnUser_WhenExists() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        Optional<User> user = userService.findById(1L);
+        Optional<UserView> user = userService.findById(1L);
 
         assertTrue(user.isPresent());
-        assertEquals("john", user.get().getUsername());
+        assertEquals("john", user.get().username());
     }
 
     @Test
     void findById_ShouldReturnEmpty_WhenNotExists() {
         when(userRepository.findById(2L)).thenReturn(Optional.empty());
-        Optional<User> user = userService.findById(2L);
+        Optional<UserView> user = userService.findById(2L);
 
         assertTrue(user.isEmpty());
     }
@@ -112,16 +198,16 @@ class UserServiceTest {
     @Test
     void findByUsername_ShouldReturnUser_WhenExists() {
         when(userRepository.findByUsername("john")).thenReturn(Optional.of(testUser));
-        Optional<User> user = userService.findByUsername("john");
+        Optional<UserView> user = userService.findByUsername("john");
 
         assertTrue(user.isPresent());
-        assertEquals("john", user.get().getUsername());
+        assertEquals("john", user.get().username());
     }
 
     @Test
     void findByUsername_ShouldReturnEmpty_WhenNotExists() {
         when(userRepository.findByUsername("notfound")).thenReturn(Optional.empty());
-        Optional<User> user = userService.findByUsername("notfound");
+        Optional<UserView> user = userService.findByUsername("notfound");
 
         assertTrue(user.isEmpty());
     }
@@ -129,36 +215,123 @@ class UserServiceTest {
     @Test
     void findByEmail_ShouldReturnUser_WhenExists() {
         when(userRepository.findByEmail("john@mail.com")).thenReturn(Optional.of(testUser));
-        Optional<User> user = userService.findByEmail("john@mail.com");
+        Optional<UserView> user = userService.findByEmail("john@mail.com");
 
         assertTrue(user.isPresent());
-        assertEquals("john@mail.com", user.get().getEmail());
+        assertEquals("john@mail.com", user.get().email());
     }
 
     @Test
     void findByEmail_ShouldReturnEmpty_WhenNotExists() {
         when(userRepository.findByEmail("notfound@mail.com")).thenReturn(Optional.empty());
-        Optional<User> user = userService.findByEmail("notfound@mail.com");
+        Optional<UserView> user = userService.findByEmail("notfound@mail.com");
 
         assertTrue(user.isEmpty());
     }
 
     @Test
-    void deleteUser_ShouldDelete_WhenExists() {
-        when(userRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(userRepository).deleteById(1L);
+    void findById_ShouldHitCache_OnRepeatedLookups() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        userService.findById(1L);
+        userService.findById(1L);
+
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void findById_ShouldNotCacheLoad_WhenUserEvictedWhileLoading() {
+        // Инвалидация после коммита приходит, пока чтение ещё держит старое состояние
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            userCache.evictUser(1L);
+            return Optional.of(testUser);
+        });
+
+        userService.findById(1L);
+        userService.findById(1L);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void findByEmail_ShouldReuseEntryLoadedById() {
+        when(userRepository.findByEmail("john@mail.com")).thenReturn(Optional.of(testUser));
+
+        userService.findByEmail("john@mail.com");
+        Optional<UserView> byId = userService.findById(1L);
+
+        assertTrue(byId.isPresent());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void findById_ShouldNotCacheMissingUser() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        userService.findById(2L);
+        userService.findById(2L);
+
+        verify(userRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void changeRole_ShouldEvictCacheAndRevokeTokens() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        userService.findById(1L);
+
+        UserView updated = userService.changeRole(1L, Role.ADMIN);
+
+        assertEquals(Role.ADMIN, updated.role());
+        verify(tokenRevocationService).revokeUser(1L);
+        assertEquals(Role.ADMIN, userService.findById(1L).orElseThrow().role());
+        verify(userRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    void deleteUser_ShouldEvictCachedUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.softDelete(1L)).thenReturn(1);
+        when(userDeletionJobRepository.save(any(UserDeletionJob.class))).thenAnswer(inv -> inv.getArgument(0));
+        userService.findById(1L);
 
-        assertDoesNotThrow(() -> userService.deleteUser(1L));
-        verify(userRepository).deleteById(1L);
+        userService.deleteUser(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(userService.findById(1L).isEmpty());
+    }
+
+    @Test
+    void deleteUser_ShouldSoftDeleteAndCreateJob_WithoutLoadingCards() {
+        when(userRepository.softDelete(1L)).thenReturn(1);
+        when(userDeletionJobRepository.save(any(UserDeletionJob.class)))
+                .thenAnswer(inv -> inv.<UserDeletionJob>getArgument(0).setId(7L));
+
+        UserDeletionJobResponse job = userService.deleteUser(1L);
+
+        assertEquals(7L, job.id());
+        assertEquals(1L, job.userId());
+        assertEquals(UserDeletionStatus.PENDING, job.status());
+        verify(userRepository, never()).deleteById(any());
+        verify(userRepository, never()).findById(any());
+        verify(tokenRevocationService).revokeUser(1L);
+        verify(cardCache).evictAllUserCards(1L);
     }
 
     @Test
     void deleteUser_ShouldThrow_WhenNotExists() {
-        when(userRepository.existsById(2L)).thenReturn(false);
+        when(userRepository.softDelete(2L)).thenReturn(0);
 
         NotFoundException ex = assertThrows(NotFoundException.class,
                 () -> userService.deleteUser(2L));
         assertEquals("User not found", ex.getMessage());
+        verify(userDeletionJobRepository, never()).save(any());
+    }
+
+    @Test
+    void getDeletionJob_ShouldThrow_WhenNotExists() {
+        when(userDeletionJobRepository.findById(3L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> userService.getDeletionJob(3L));
     }
 
     @Test
@@ -169,9 +342,22 @@ class UserServiceTest {
 
         when(userRepository.findAll(pageable)).thenReturn(page);
 
-        Page<User> result = userService.getAllUsers(pageable);
+        PageResponse<User> result = userService.getAllUsers(pageable, CountMode.EXACT);
+
+        assertEquals(1, result.totalElements());
+        assertEquals("john", result.content().get(0).getUsername());
+    }
+
+    @Test
+    void getAllUsers_ShouldUseTableEstimate() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(tableStatsRepository.estimateRowCount("users")).thenReturn(Optional.of(5000L));
+        when(userRepository.findAllBy(pageable)).thenReturn(new SliceImpl<>(List.of(testUser), pageable, true));
+
+        PageResponse<User> result = userService.getAllUsers(pageable, CountMode.ESTIMATE);
 
-        assertEquals(1, result.getTotalElements());
-        assertEquals("john", result.getContent().get(0).getUsername());
+        assertEquals(5000L, result.totalElements());
+        assertEquals(CountMode.ESTIMATE, result.totalKind());
+        verify(userRepository, never()).findAll(any(Pageable.class));
     }
 }